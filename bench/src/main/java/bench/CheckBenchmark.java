@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package bench;
+
+import maze.Maze;
+import mazeSolver.BiDirectionalBFSSolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maze.isPerfect() and Maze.validate() on a maze generated once per trial
+ * from a fixed seed, with visualisation off. validate() checks the footprints
+ * of a BiDirectionalBFSSolver solve done in the setup; its diagnostics are
+ * discarded while the benchmark runs. Run with -prof gc for the bytes
+ * allocated per check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xss512k", "-Xmx4g" })
+@State(Scope.Thread)
+public class CheckBenchmark {
+
+	@Param({ "kruskal" })
+	public String generator;
+
+	@Param({ "normal", "tunnel", "hex" })
+	public String type;
+
+	@Param({ "object", "packed" })
+	public String storage;
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	@Param({ "1" })
+	public long seed;
+
+	private Maze maze;
+
+	private PrintStream out;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		maze = Mazes.newMaze(type, storage, size);
+		Mazes.generate(maze, generator, seed);
+		new BiDirectionalBFSSolver().solveMaze(maze);
+		out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(out);
+	}
+
+	@Benchmark
+	public boolean isPerfect() {
+		return maze.isPerfect();
+	}
+
+	@Benchmark
+	public boolean validate() {
+		return maze.validate();
+	}
+}
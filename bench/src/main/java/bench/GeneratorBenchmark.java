@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package bench;
+
+import maze.Maze;
+import maze.MazeRandom;
+import mazeGenerator.MazeGenerator;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of a maze by each generator, for each maze type, storage and
+ * size. The maze is built all walls before each call and the generator is
+ * seeded again, so every call generates the same maze for a seed. Besides
+ * the generations per second, the cells counter gives cells generated per
+ * second; run with -prof gc for the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xss512k", "-Xmx4g" })
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+
+	@Param({ "kruskal", "modiPrim", "recurBack" })
+	public String generator;
+
+	@Param({ "normal", "tunnel", "hex" })
+	public String type;
+
+	@Param({ "object", "packed" })
+	public String storage;
+
+	@Param({ "100", "500", "2000" })
+	public int size;
+
+	@Param({ "1", "2", "3" })
+	public long seed;
+
+	private MazeGenerator mazeGen;
+
+	private Maze maze;
+
+	/**
+	 * The cells generated, reported by JMH as a rate.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Cells {
+		public long cells;
+	}
+
+	@Setup(Level.Trial)
+	public void setUpGenerator() {
+		mazeGen = Mazes.newGenerator(generator);
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpMaze() {
+		maze = Mazes.newMaze(type, storage, size);
+		mazeGen.setRandom(new MazeRandom(seed));
+	}
+
+	@Benchmark
+	public void generate(Cells counter, Blackhole bh) {
+		mazeGen.generateMaze(maze);
+		counter.cells += maze.numCells();
+		bh.consume(maze);
+	}
+}
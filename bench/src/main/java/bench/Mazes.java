@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package bench;
+
+import maze.HexMaze;
+import maze.Maze;
+import maze.MazeRandom;
+import maze.NormalMaze;
+import maze.TunnelMaze;
+import mazeGenerator.KruskalGenerator;
+import mazeGenerator.MazeGenerator;
+import mazeGenerator.ModifiedPrimsGenerator;
+import mazeGenerator.RecursiveBacktrackerGenerator;
+import mazeSolver.AStarSolver;
+import mazeSolver.BiDirectionalBFSSolver;
+import mazeSolver.DeadEndFillingSolver;
+import mazeSolver.MazeSolver;
+import mazeSolver.ParallelBFSSolver;
+import mazeSolver.ParallelBiDirectionalBFSSolver;
+import mazeSolver.RecursiveBacktrackerSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the mazes, generators and solvers of the benchmarks from their names, the
+ * same names as in the parameter files of MazeTester.
+ */
+final class Mazes {
+
+	private Mazes() {
+	}
+
+	/**
+	 * A new all-wall square maze, with the entrance and exit at opposite
+	 * corners and, for a tunnel maze, two tunnels crossing it.
+	 *
+	 * @param type normal, tunnel or hex
+	 * @param storage object or packed
+	 * @param size the number of rows and columns
+	 * @return the maze
+	 */
+	static Maze newMaze(String type, String storage, int size) {
+		Maze maze;
+		switch (type) {
+		case "normal":
+			maze = new NormalMaze();
+			break;
+		case "tunnel":
+			maze = new TunnelMaze();
+			break;
+		case "hex":
+			maze = new HexMaze();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown maze type " + type);
+		}
+		switch (storage) {
+		case "object":
+			maze.storage = Maze.OBJECT_STORAGE;
+			break;
+		case "packed":
+			maze.storage = Maze.PACKED_STORAGE;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown maze storage " + storage);
+		}
+		maze.isVisu = false;
+
+		List<int[]> tunnels = new ArrayList<int[]>();
+		if (maze instanceof TunnelMaze) {
+			int lo = size / 4;
+			int hi = size - 1 - size / 4;
+			tunnels.add(new int[] { lo, lo, hi, hi });
+			tunnels.add(new int[] { lo, hi, hi, lo });
+		}
+		maze.initMaze(size, size, 0, 0, size - 1, size - 1, tunnels);
+		return maze;
+	}
+
+	/**
+	 * A new generator.
+	 *
+	 * @param name kruskal, modiPrim or recurBack
+	 * @return the generator
+	 */
+	static MazeGenerator newGenerator(String name) {
+		switch (name) {
+		case "kruskal":
+			return new KruskalGenerator();
+		case "modiPrim":
+			return new ModifiedPrimsGenerator();
+		case "recurBack":
+			return new RecursiveBacktrackerGenerator();
+		default:
+			throw new IllegalArgumentException("Unknown maze generator " + name);
+		}
+	}
+
+	/**
+	 * Generate a maze from a seed.
+	 *
+	 * @param maze the all-wall maze
+	 * @param generator the name of the generator, as in newGenerator()
+	 * @param seed the seed
+	 */
+	static void generate(Maze maze, String generator, long seed) {
+		MazeGenerator mazeGen = newGenerator(generator);
+		mazeGen.setRandom(new MazeRandom(seed));
+		mazeGen.generateMaze(maze);
+	}
+
+	/**
+	 * A new solver.
+	 *
+	 * @param name recurBack, biDir, parBiDir, parBFS, aStar or deadEnd
+	 * @return the solver
+	 */
+	static MazeSolver newSolver(String name) {
+		switch (name) {
+		case "recurBack":
+			return new RecursiveBacktrackerSolver();
+		case "biDir":
+			return new BiDirectionalBFSSolver();
+		case "parBiDir":
+			return new ParallelBiDirectionalBFSSolver();
+		case "parBFS":
+			return new ParallelBFSSolver();
+		case "aStar":
+			return new AStarSolver();
+		case "deadEnd":
+			return new DeadEndFillingSolver();
+		default:
+			throw new IllegalArgumentException("Unknown maze solver " + name);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package bench;
+
+import maze.Maze;
+import maze.MazeRandom;
+import mazeSolver.MazeSolver;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solving a maze by each solver, for each maze type, storage and size. The
+ * maze is generated once per trial from a fixed seed, with visualisation off,
+ * and solved over and over; solvers making random choices are seeded again
+ * before each solve. The average time is the solve latency, the explored
+ * counter gives cells explored per microsecond, and -prof gc gives the bytes
+ * allocated per solve (gc.alloc.rate.norm).
+ */
+@BenchmarkMode({ Mode.AverageTime, Mode.Throughput })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xss512k", "-Xmx4g" })
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+	@Param({ "recurBack", "biDir", "parBiDir", "parBFS", "aStar", "deadEnd" })
+	public String solver;
+
+	@Param({ "kruskal" })
+	public String generator;
+
+	@Param({ "normal", "tunnel", "hex" })
+	public String type;
+
+	@Param({ "object", "packed" })
+	public String storage;
+
+	@Param({ "100", "1000" })
+	public int size;
+
+	@Param({ "1", "2" })
+	public long seed;
+
+	private Maze maze;
+
+	private MazeSolver mazeSolver;
+
+	/**
+	 * The cells explored, reported by JMH as a rate.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Explored {
+		public long explored;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		maze = Mazes.newMaze(type, storage, size);
+		Mazes.generate(maze, generator, seed);
+		mazeSolver = Mazes.newSolver(solver);
+	}
+
+	@Benchmark
+	public boolean solve(Explored counter) {
+		mazeSolver.setRandom(new MazeRandom(seed));
+		mazeSolver.solveMaze(maze);
+		counter.explored += mazeSolver.cellsExplored();
+		return mazeSolver.isSolved();
+	}
+}
@@ -29,18 +29,22 @@ class MazeTester {
 	 * Print help/usage message.
 	 */
 	public static void usage(String progName) {
-		System.err.println(progName + ": [input fileName] <visualize maze>");
-		System.err.println("<visualize maze> = <y | n>");
+		System.err.println(progName + ": [input fileName] <visualize maze> [storage] [seed]");
+		System.err.println("<visualize maze> = <y | n | png>, png writes the maze to [input fileName].png without a window");
+		System.err.println("[storage] = <object | packed | mapped>, object by default");
+		System.err.println("mapped keeps the walls in [input fileName].walls and reuses them on a run with the same generator and seed");
+		System.err.println("[seed] = seed of the random choices, to generate and solve the same maze again");
 		System.exit(1);
 	} // end of usage()
 
 	/**
 	 * Main function of tester.
-	 * @param args Two arguments which are input filename and "y/n" indicating whether to visualize the maze. 
+	 * @param args Two arguments which are input filename and "y/n" indicating whether to visualize the maze,
+	 * optionally followed by the storage of the maze and the seed.
 	 */
 	public static void main(String[] args) {
 		// read command line arguments
-		if (args.length != 2) {
+		if (args.length < 2 || args.length > 4) {
 			System.err.println("Incorrect number of arguments.");
 			usage(progName);
 		}
@@ -49,6 +53,8 @@ class MazeTester {
 		
 		// flag to indicate whether we visualise maze or not
 		boolean isVisu = false;
+		// flag to indicate whether we write the maze as png instead
+		boolean isPng = false;
 		// note that drawFtPrt(Cell) need to be called for validating the solution
 		switch (args[1]) {
 		case "y":
@@ -57,10 +63,44 @@ class MazeTester {
 		case "n":
 			isVisu = false;
 			break;
+		case "png":
+			isPng = true;
+			break;
 		default:
 			System.err.println("Incorrect argument value.");
 			usage(progName);
 		}
+
+		// storage of the maze walls
+		int storage = Maze.OBJECT_STORAGE;
+		if (args.length >= 3) {
+			switch (args[2]) {
+			case "object":
+				storage = Maze.OBJECT_STORAGE;
+				break;
+			case "packed":
+				storage = Maze.PACKED_STORAGE;
+				break;
+			case "mapped":
+				storage = Maze.MAPPED_STORAGE;
+				break;
+			default:
+				System.err.println("Unknown maze storage.");
+				usage(progName);
+			}
+		}
+
+		// random choices of generator and solver, from a seed printed so that a run can be repeated
+		MazeRandom rand = new MazeRandom();
+		if (args.length == 4) {
+			try {
+				rand = new MazeRandom(Long.parseLong(args[3]));
+			} catch (NumberFormatException e) {
+				System.err.println("Incorrect seed.");
+				usage(progName);
+			}
+		}
+		outStream.println("Seed = " + rand.getSeed());
 		
 		// default values for parameters
 		String mazeType = "normal";
@@ -130,6 +170,9 @@ class MazeTester {
 		}
 		
 		// initialise maze
+		maze.storage = storage;
+		maze.storageFile = new File(fName + ".walls");
+		maze.storageKey = mazeGeneratorName + " " + rand.getSeed();
 		maze.initMaze(rowNum, colNum, entR, entC, exitR, exitC, tunnelList);
 
 		// check if maze entrance or exit is valid
@@ -155,14 +198,26 @@ class MazeTester {
 			usage(progName);
 		}
 
-		outStream.println(mazeGen.getClass().getSimpleName() + " is generating the maze.");
-
-		// generate maze
-		mazeGen.generateMaze(maze);
-
 		// update whether maze should be visualised
 		maze.isVisu = isVisu;
 
+		// generate maze, unless it was loaded from an earlier run
+		if (maze.walls != null && maze.walls.isLoaded()) {
+			outStream.println("Reusing the maze stored in " + maze.storageFile + ".");
+		}
+		else {
+			outStream.println(mazeGen.getClass().getSimpleName() + " is generating the maze.");
+			mazeGen.setRandom(rand.stream(0));
+			// draw the walls as they are carved
+			if (isVisu) {
+				maze.draw();
+				mazeGen.setListener(new DrawingListener((NormalMaze) maze));
+			}
+			mazeGen.generateMaze(maze);
+			if (maze.walls != null)
+				maze.walls.markComplete();
+		}
+
 		// check if maze is perfect
 		boolean isPerfectMaze = maze.isPerfect();
 		
@@ -178,11 +233,31 @@ class MazeTester {
 			case "biDir":
 				mazeSolver = new BiDirectionalBFSSolver();
 				break;
+			case "parBiDir":
+				mazeSolver = new ParallelBiDirectionalBFSSolver();
+				break;
+			case "parBFS":
+				mazeSolver = new ParallelBFSSolver();
+				break;
+			case "aStar":
+				mazeSolver = new AStarSolver();
+				break;
+			case "deadEnd":
+				mazeSolver = new DeadEndFillingSolver();
+				break;
+			case "index":
+				mazeSolver = new PathIndexSolver();
+				break;
 			case "recurBack":
 				mazeSolver = new RecursiveBacktrackerSolver();
 				break;
                         // sample solver to help you get started
                         case "sample":
+                                // the sample solver walks map[][] directly
+                                if (storage != Maze.OBJECT_STORAGE) {
+                                        System.err.println("Sample solver requires object storage.");
+                                        usage(progName);
+                                }
                                 mazeSolver = new SampleSolver();
                                 break;
 			// no solver
@@ -194,6 +269,9 @@ class MazeTester {
 			}
 
 			if (mazeSolver != null) {
+				SolveStats stats = new SolveStats();
+				mazeSolver.setRandom(rand.stream(1));
+				mazeSolver.setStats(stats);
 				mazeSolver.solveMaze(maze);
 				outStream.println(mazeSolver.getClass().getSimpleName() + " is solving the maze.");
 				// check if solver can get out of maze
@@ -201,6 +279,9 @@ class MazeTester {
 					outStream.println("The maze has been solved!");
 					// display number of cells visited for solver
 					outStream.println("Number of cells visited = " + mazeSolver.cellsExplored());
+					// solvers not measuring leave the metrics empty
+					if (stats.cellsVisited > 0)
+						outStream.println("Solve stats: " + stats);
 					// show results from validation
 					outStream.println("Validation result:");
 					boolean isValid = maze.validate();
@@ -210,5 +291,16 @@ class MazeTester {
 				}
 			}
 		}
+
+		// write the maze with the foot prints of the solver
+		if (isPng && maze instanceof NormalMaze) {
+			File pngFile = new File(fName + ".png");
+			try {
+				new MazeRenderer((NormalMaze) maze, 8).writePng(pngFile);
+				outStream.println("The maze is written to " + pngFile + ".");
+			} catch (IOException e) {
+				System.err.println("Cannot write " + pngFile + ": " + e.getMessage());
+			}
+		}
 	} // end of main()
 } // end of class MazeTester
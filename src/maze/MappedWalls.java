@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Wall storage keeping the bits in a memory-mapped file, used when the storage of
+ * the maze is MAPPED_STORAGE. The bits live outside the Java heap and are paged in
+ * by the operating system on demand. The file keeps the walls after the process
+ * exits, and opening it again for a maze of the same type, size and key loads them
+ * back, once markComplete() has recorded that they were completely generated.
+ *
+ * Only the walls are off the heap. The maze keeps a bit per cell of footprints,
+ * and generating, checking and solving it still take arrays on the heap indexed
+ * by cell, about these many bytes per cell at most, which -Xmx has to cover:
+ * KruskalGenerator 21 for square cells and 29 for hexagons, and no more than
+ * about 1073M square or 715M hexagon cells; ModifiedPrimsGenerator 9;
+ * RecursiveBacktrackerGenerator 4; isPerfect() and validate() 4; a solver 4 to
+ * 12, PathIndexSolver 16 and BatchSolver 12 per worker thread.
+ *
+ * The file starts with a header of HEADER_SIZE bytes: the magic number, type, size,
+ * completion flag and key of the maze. It is followed by the bits of each owned
+ * direction in turn, as little-endian longs. As a single mapping is limited
+ * to 2GB, the file is mapped in segments of 1 << SEGMENT_SHIFT bytes.
+ */
+public class MappedWalls extends WallStore {
+
+	/** Magic number at the start of the file. */
+	private static final long MAGIC = 0x4D415A4557414C4CL;
+
+	/** Size of the file header in bytes. */
+	private static final int HEADER_SIZE = 64;
+
+	/** Offset in the header of the completion flag, followed by the length and bytes of the key. */
+	private static final int COMPLETE_AT = 20;
+
+	/** The largest key in bytes, filling the rest of the header. */
+	private static final int KEY_SIZE = HEADER_SIZE - COMPLETE_AT - 4 - 2;
+
+	/** Log2 of the size of a mapped segment in bytes. */
+	private static final int SEGMENT_SHIFT = 30;
+
+	/** Mask of the offset inside a mapped segment. */
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	/** The mapped segments of the file. */
+	private MappedByteBuffer segments[];
+
+	/** offset[dir] is the file offset of the bits of direction dir. */
+	private long offset[] = new long[Maze.NUM_DIR / 2];
+
+	/** The number of longs of bits of each direction. */
+	private long words;
+
+	/** The number of directions stored. */
+	private int numDir;
+
+	/** True if the walls were loaded from the file. */
+	private boolean loaded = false;
+
+	/**
+	 * Open the storage of a maze, loading the walls if the file holds a complete maze
+	 * of the same type, size and key, or building an all-wall maze otherwise.
+	 * @param file The file to map.
+	 * @param type Type of the maze.
+	 * @param sizeR Number of rows of the maze.
+	 * @param sizeC Number of columns of the maze.
+	 * @param key What the walls are generated by, at most KEY_SIZE bytes in UTF-8.
+	 * @throws IOException If the file cannot be opened or mapped.
+	 */
+	public MappedWalls(File file, int type, int sizeR, int sizeC, String key) throws IOException {
+		byte keyBytes[] = key.getBytes(StandardCharsets.UTF_8);
+		if (keyBytes.length > KEY_SIZE)
+			throw new IllegalArgumentException("Storage key longer than " + KEY_SIZE + " bytes: " + key);
+		words = ((long) sizeR * sizeC + 63) >>> 6;
+		numDir = type == Maze.HEX ? 3 : 2;
+		long length = HEADER_SIZE + numDir * words * 8;
+		offset[Maze.EAST] = HEADER_SIZE;
+		offset[Maze.NORTH] = HEADER_SIZE + words * 8;
+		offset[Maze.NORTHEAST] = HEADER_SIZE + 2 * words * 8;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			if (raf.length() == length && raf.readLong() == MAGIC && raf.readInt() == type
+					&& raf.readInt() == sizeR && raf.readInt() == sizeC && raf.readInt() == 1
+					&& Arrays.equals(readKey(raf), keyBytes)) {
+				loaded = true;
+			}
+			else {
+				// a sparse file of zeros, i.e. all walls, not complete until markComplete()
+				raf.setLength(0);
+				raf.setLength(length);
+				raf.seek(0);
+				raf.writeLong(MAGIC);
+				raf.writeInt(type);
+				raf.writeInt(sizeR);
+				raf.writeInt(sizeC);
+				raf.writeInt(0);
+				raf.writeShort(keyBytes.length);
+				raf.write(keyBytes);
+			}
+
+			FileChannel channel = raf.getChannel();
+			segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_SHIFT;
+				long size = Math.min(1L << SEGMENT_SHIFT, length - start);
+				segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+	} // end of MappedWalls()
+
+
+	@Override
+	public boolean isOpen(int id, int dir) {
+		long pos = offset[dir] + ((long) (id >>> 6) << 3);
+		long word = segments[(int) (pos >>> SEGMENT_SHIFT)].getLong((int) (pos & SEGMENT_MASK));
+		return (word & (1L << id)) != 0;
+	} // end of isOpen()
+
+
+	@Override
+	public void setOpen(int id, int dir, boolean isOpen) {
+		long pos = offset[dir] + ((long) (id >>> 6) << 3);
+		MappedByteBuffer segment = segments[(int) (pos >>> SEGMENT_SHIFT)];
+		int at = (int) (pos & SEGMENT_MASK);
+		long word = segment.getLong(at);
+		if (isOpen)
+			segment.putLong(at, word | 1L << id);
+		else
+			segment.putLong(at, word & ~(1L << id));
+	} // end of setOpen()
+
+
+	@Override
+	public long countOpen() {
+		// the bits of all directions follow the header, longs never cross a segment
+		long count = 0;
+		long end = HEADER_SIZE + numDir * words * 8;
+		for (long pos = HEADER_SIZE; pos < end; pos += 8)
+			count += Long.bitCount(segments[(int) (pos >>> SEGMENT_SHIFT)].getLong((int) (pos & SEGMENT_MASK)));
+		return count;
+	} // end of countOpen()
+
+
+	/**
+	 * Read the key from the header.
+	 * @param raf The file, positioned at the length of the key.
+	 * @return The bytes of the key, empty if the length is not valid.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static byte[] readKey(RandomAccessFile raf) throws IOException {
+		int size = raf.readUnsignedShort();
+		if (size > KEY_SIZE)
+			return new byte[0];
+		byte key[] = new byte[size];
+		raf.readFully(key);
+		return key;
+	} // end of readKey()
+
+
+	@Override
+	public boolean isLoaded() {
+		return loaded;
+	} // end of isLoaded()
+
+
+	@Override
+	public void flush() {
+		for (MappedByteBuffer segment : segments)
+			segment.force();
+	} // end of flush()
+
+
+	@Override
+	public void markComplete() {
+		// the walls reach the file before the flag does
+		flush();
+		// the header is big-endian, as written by RandomAccessFile
+		segments[0].duplicate().order(ByteOrder.BIG_ENDIAN).putInt(COMPLETE_AT, 1);
+		segments[0].force();
+	} // end of markComplete()
+
+} // end of class MappedWalls
@@ -1,5 +1,6 @@
 package maze;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -14,6 +15,10 @@ import java.util.List;
  * map[r][c].r == r and map[r][c].c == c,  
  * all neighbor cell objects are assigned correctly for each cell, 
  * and same wall object are shared by two cell objects next to the wall
+ *
+ * With any storage other than OBJECT_STORAGE, map[][] is null and the cells are
+ * addressed by index instead, see index(r, c). Cell objects are then only created
+ * on demand by cellAt(id) as snapshot views for legacy callers.
  */
 public abstract class Maze {
 	
@@ -39,6 +44,10 @@ public abstract class Maze {
 	public final static int deltaR[] = { 0, 1, 1, 0, -1, -1 };
 	public final static int deltaC[] = { 1, 1, 0, -1, -1, 0 };
 	public final static int oppoDir[] = { 3, 4, 5, 0, 1, 2 };
+	// storage of the walls: Cell and Wall objects in map[][], bits in PackedWalls or in MappedWalls
+	public final static int OBJECT_STORAGE = 0;
+	public final static int PACKED_STORAGE = 1;
+	public final static int MAPPED_STORAGE = 2;
 		
 	/**
 	 * maze properties
@@ -51,6 +60,16 @@ public abstract class Maze {
 	public Cell entrance;
 	public Cell exit;
 	public boolean isVisu = true;
+	// set before initMaze() to choose the storage
+	public int storage = OBJECT_STORAGE;
+	// file of the walls, required for MAPPED_STORAGE
+	public File storageFile = null;
+	// what the walls are generated by, e.g. generator and seed; stored walls are reused only if complete with the same key
+	public String storageKey = "";
+	// wall bits, null with OBJECT_STORAGE
+	public WallStore walls = null;
+	// number of changes made by initMaze() and setWallPresent(), see modCount()
+	protected long modCount = 0;
 	
 	/**
 	 * To test whether the input entrance and exit locations are valid.
@@ -72,6 +91,116 @@ public abstract class Maze {
 	 */
 	public abstract void initMaze(int rs, int cs, int entR, int entC, int exitR, int exitC, List<int[]> tunnelList);
 
+	/**
+	 * Number of cells in the maze.
+	 * @return The number of cells, indices of cells are 0 to numCells() - 1.
+	 */
+	public abstract int numCells();
+
+	/**
+	 * Index of the cell at position (r, c), cells are numbered row by row.
+	 * @param r Row coordinate, as in map[r][c].
+	 * @param c Column coordinate, as in map[r][c].
+	 * @return Index of the cell.
+	 */
+	public abstract int index(int r, int c);
+
+	/**
+	 * Index of a cell.
+	 * @param cell The cell, either from map[][] or a view from cellAt(id).
+	 * @return Index of the cell.
+	 */
+	public abstract int index(Cell cell);
+
+	/**
+	 * Row coordinate of a cell.
+	 * @param id Index of the cell.
+	 * @return Row coordinate, as in map[r][c].
+	 */
+	public abstract int row(int id);
+
+	/**
+	 * Column coordinate of a cell.
+	 * @param id Index of the cell.
+	 * @return Column coordinate, as in map[r][c].
+	 */
+	public abstract int col(int id);
+
+	/**
+	 * Neighbor of a cell.
+	 * @param id Index of the cell.
+	 * @param dir Direction of the neighbor.
+	 * @return Index of the neighbor cell, -1 if there is no neighbor on direction dir.
+	 */
+	public abstract int neighbour(int id, int dir);
+
+	/**
+	 * Check whether the wall on a side of a cell is present.
+	 * @param id Index of the cell.
+	 * @param dir Direction of the wall.
+	 * @return True if the wall is present, or the cell has no wall on direction dir. Otherwise false.
+	 */
+	public abstract boolean isWallPresent(int id, int dir);
+
+	/**
+	 * Build or carve the wall on a side of a cell.
+	 * @param id Index of the cell.
+	 * @param dir Direction of the wall.
+	 * @param present False to carve the wall, true to build it.
+	 */
+	public abstract void setWallPresent(int id, int dir, boolean present);
+
+	/**
+	 * Count of the changes made to the maze by initMaze() and setWallPresent(),
+	 * to tell whether anything derived from the maze is still up to date.
+	 * Changes made directly to the Cell and Wall objects of map[][] are not counted.
+	 * @return The number of changes so far.
+	 */
+	public long modCount() {
+		return modCount;
+	} // end of modCount()
+
+	/**
+	 * The other end of the tunnel from a cell.
+	 * @param id Index of the cell.
+	 * @return Index of the other end, -1 if the cell is not a tunnel end.
+	 */
+	public abstract int tunnel(int id);
+
+	/**
+	 * Ends of all tunnels.
+	 * @return A new array of cell indices, element 2i and 2i+1 are linked by tunnel i; empty if there is no tunnel.
+	 */
+	public abstract int[] tunnelEnds();
+
+	/**
+	 * Cells reachable in one step from a cell, through an open wall or a tunnel.
+	 * @param id Index of the cell.
+	 * @param cells Array of at least NUM_DIR + 1 elements, filled with the indices of the cells.
+	 * @return The number of cells filled in.
+	 */
+	public int openNeighbours(int id, int cells[]) {
+		int num = 0;
+		int end = tunnel(id);
+		if (end >= 0)
+			cells[num++] = end;
+		for (int dir = 0; dir < NUM_DIR; dir++) {
+			int next = neighbour(id, dir);
+			if (next >= 0 && !isWallPresent(id, dir))
+				cells[num++] = next;
+		}
+		return num;
+	} // end of openNeighbours()
+
+	/**
+	 * Cell object of a cell. With OBJECT_STORAGE this is the cell in map[][],
+	 * otherwise a new view whose walls are a snapshot of the maze:
+	 * changing them does not change the maze, use setWallPresent(id, dir, present) instead.
+	 * @param id Index of the cell.
+	 * @return The cell.
+	 */
+	public abstract Cell cellAt(int id);
+
 	/**
 	 * Check whether the maze is a perfect maze
 	 * @return true if it is perfect maze, i.e. every cell can be visited and there is no loop.
@@ -89,6 +218,12 @@ public abstract class Maze {
 	 */
 	public abstract void drawFtPrt(Cell cell);
 
+	/**
+	 * Draw a foot print at cell's position, for testing solution
+	 * @param id Index of the cell to be drawn.
+	 */
+	public abstract void drawFtPrt(int id);
+
 
         /**
          * Show validation result of whether the maze is solved
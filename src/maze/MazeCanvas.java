@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Picture of a maze kept up to date by repainting only what changed. The
+ * picture is a persistent back buffer cut into square tiles; a change to a cell
+ * marks the tiles under that cell as dirty, and repaint() renders those tiles
+ * again with MazeRenderer, leaving the rest of the picture as it is.
+ *
+ * The canvas keeps what has to be repainted itself, the maze is only read. It
+ * does not see the maze change: whoever changes a cell, a generator through a
+ * GenerationListener or a solver through drawFtPrt(), tells it by invalidate().
+ * NormalMaze shows its window from a canvas this way, see NormalMaze.invalidate()
+ * and drawChanges().
+ */
+public class MazeCanvas {
+
+	/** The size of a tile in pixels. */
+	public static final int TILE = 64;
+
+	/** The renderer of the maze. */
+	private final MazeRenderer renderer;
+
+	/** The picture, and its pixels as 0xRRGGBB. */
+	private final BufferedImage image;
+	private final int rgb[];
+
+	/** The size of the picture in pixels, and in tiles. */
+	private final int width, height, tilesX, tilesY;
+
+	/** Bits of the dirty tiles, tile (tx, ty) at bit ty * tilesX + tx. */
+	private final long dirty[];
+
+	/**
+	 * Construct a canvas, all dirty.
+	 * @param maze The maze.
+	 * @param cellPixels Size of a cell in pixels, at least 2.
+	 */
+	public MazeCanvas(NormalMaze maze, int cellPixels) {
+		renderer = new MazeRenderer(maze, cellPixels);
+		width = renderer.getWidth();
+		height = renderer.getHeight();
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		tilesX = (width + TILE - 1) / TILE;
+		tilesY = (height + TILE - 1) / TILE;
+		dirty = new long[(tilesX * tilesY + 63) >>> 6];
+		invalidateAll();
+	} // end of MazeCanvas()
+
+
+	/**
+	 * The picture, as of the last repaint(). It is the back buffer itself, not a copy.
+	 * @return The picture.
+	 */
+	public BufferedImage getImage() {
+		return image;
+	} // end of getImage()
+
+
+	/**
+	 * Mark a cell as changed, whether a wall of it or its foot print.
+	 * @param id Index of the cell.
+	 */
+	public void invalidate(int id) {
+		int bounds[] = renderer.cellBounds(id);
+		int txLo = Math.max(0, bounds[0] / TILE), txHi = Math.min(tilesX - 1, bounds[2] / TILE);
+		int tyLo = Math.max(0, bounds[1] / TILE), tyHi = Math.min(tilesY - 1, bounds[3] / TILE);
+		for (int ty = tyLo; ty <= tyHi; ty ++) {
+			for (int tx = txLo; tx <= txHi; tx ++) {
+				int tile = ty * tilesX + tx;
+				dirty[tile >>> 6] |= 1L << tile;
+			}
+		}
+	} // end of invalidate()
+
+
+	/**
+	 * Mark the whole picture as changed.
+	 */
+	public void invalidateAll() {
+		for (int tile = 0; tile < tilesX * tilesY; tile ++)
+			dirty[tile >>> 6] |= 1L << tile;
+	} // end of invalidateAll()
+
+
+	/**
+	 * Check whether anything is to be repainted.
+	 * @return True if some tile is dirty. Otherwise false.
+	 */
+	public boolean isDirty() {
+		for (long word : dirty) {
+			if (word != 0)
+				return true;
+		}
+		return false;
+	} // end of isDirty()
+
+
+	/**
+	 * Render the dirty tiles again, making them clean.
+	 * @return The bounds of the pixels repainted, null if nothing was dirty.
+	 */
+	public Rectangle repaint() {
+		Rectangle bounds = null;
+		for (int w = 0; w < dirty.length; w ++) {
+			for (long bits = dirty[w]; bits != 0; bits &= bits - 1) {
+				int tile = (w << 6) + Long.numberOfTrailingZeros(bits);
+				int x0 = tile % tilesX * TILE, y0 = tile / tilesX * TILE;
+				int tw = Math.min(TILE, width - x0), th = Math.min(TILE, height - y0);
+				renderer.renderRect(rgb, y0 * width + x0, width, x0, y0, tw, th);
+				Rectangle rect = new Rectangle(x0, y0, tw, th);
+				bounds = bounds == null ? rect : bounds.union(rect);
+			}
+			dirty[w] = 0;
+		}
+		return bounds;
+	} // end of repaint()
+
+} // end of class MazeCanvas
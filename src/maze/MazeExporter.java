@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Exporter of a maze as PNG, for pictures far too large to hold whole. The
+ * picture is cut into bands of rows; each band is rendered by MazeRenderer and
+ * deflated on its own, in parallel on a ForkJoinPool, and the bands are written
+ * in order as they complete. At most a few bands per thread of the pool are in
+ * progress at any time, so memory stays proportional to a band, not to the picture.
+ */
+public class MazeExporter {
+
+	/** The pixels of a band by default, about 16 MB of pixels and rows. */
+	private static final int BAND_PIXELS = 1 << 22;
+
+	/** The bands in progress per thread of the pool. */
+	private static final int BANDS_PER_THREAD = 2;
+
+	/** The renderer. */
+	private final MazeRenderer renderer;
+
+	/** The pool rendering the bands. */
+	private final ForkJoinPool pool;
+
+	/** The rows of pixels in a band. */
+	private int bandRows;
+
+	/**
+	 * Construct an exporter on the common pool.
+	 * @param maze The maze.
+	 * @param cellPixels Size of a cell in pixels, at least 2.
+	 */
+	public MazeExporter(NormalMaze maze, int cellPixels) {
+		this(new MazeRenderer(maze, cellPixels), ForkJoinPool.commonPool());
+	} // end of MazeExporter()
+
+
+	/**
+	 * Construct an exporter.
+	 * @param renderer The renderer of the maze.
+	 * @param pool The pool to render on.
+	 */
+	public MazeExporter(MazeRenderer renderer, ForkJoinPool pool) {
+		this.renderer = renderer;
+		this.pool = pool;
+		bandRows = Math.max(1, Math.min(renderer.getHeight(), BAND_PIXELS / renderer.getWidth()));
+	} // end of MazeExporter()
+
+
+	/**
+	 * Set the height of the bands.
+	 * @param rows Rows of pixels in a band, at least 1.
+	 */
+	public void setBandRows(int rows) {
+		if (rows < 1)
+			throw new IllegalArgumentException("A band takes at least 1 row.");
+		bandRows = rows;
+	} // end of setBandRows()
+
+
+	/**
+	 * Write the picture as PNG.
+	 * @param file The file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void writePng(File file) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			writePng(out);
+		}
+	} // end of writePng()
+
+
+	/**
+	 * Write the picture as PNG.
+	 * @param out The output, not closed.
+	 * @throws IOException If writing fails.
+	 */
+	public void writePng(OutputStream out) throws IOException {
+		int height = renderer.getHeight();
+		int bands = (height + bandRows - 1) / bandRows;
+		int window = BANDS_PER_THREAD * pool.getParallelism();
+		Queue<ForkJoinTask<PngWriter.Strip>> inProgress = new ArrayDeque<>();
+		PngWriter png = new PngWriter(out, renderer.getWidth(), height);
+		int next = 0;
+		try {
+			while (next < bands || !inProgress.isEmpty()) {
+				// keep the pool busy, then wait for the oldest band
+				while (next < bands && inProgress.size() < window)
+					inProgress.add(pool.submit(band(next ++)));
+				png.writeStrip(inProgress.remove().join());
+			}
+		} finally {
+			for (ForkJoinTask<PngWriter.Strip> task : inProgress)
+				task.cancel(false);
+		}
+		png.close();
+	} // end of writePng()
+
+
+	/**
+	 * The task rendering and deflating a band.
+	 * @param band Number of the band, from the top.
+	 * @return The task.
+	 */
+	private ForkJoinTask<PngWriter.Strip> band(int band) {
+		int y0 = band * bandRows;
+		int rows = Math.min(bandRows, renderer.getHeight() - y0);
+		return ForkJoinTask.adapt(() -> {
+			int rgb[] = new int[rows * renderer.getWidth()];
+			renderer.renderRows(rgb, y0, rows);
+			return PngWriter.deflate(rgb, renderer.getWidth(), rows);
+		});
+	} // end of band()
+
+} // end of class MazeExporter
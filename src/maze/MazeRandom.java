@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seedable random numbers for the generators and solvers, on the SplitMix64
+ * algorithm of SplittableRandom. A generator or solver given the same seed
+ * makes the same maze or the same choices again, so a slow case can be
+ * reproduced and a maze can be cached by its seed.
+ *
+ * An instance is not thread-safe. Parallel work does not share one, it takes
+ * a stream per tile from stream(index) instead: the stream of an index only
+ * depends on the seed and the index, not on which thread asks for it or when.
+ */
+public final class MazeRandom {
+
+	/** The odd increment of the state, the golden ratio. */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** The seed of the next instance created without a seed. */
+	private static final AtomicLong defaultSeed = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+	/** The seed. */
+	private final long seed;
+
+	/** The state, advanced by GOLDEN_GAMMA on each number. */
+	private long state;
+
+	/**
+	 * Construct with a seed different for each instance.
+	 */
+	public MazeRandom() {
+		this(mix64(defaultSeed.getAndAdd(2 * GOLDEN_GAMMA)));
+	} // end of MazeRandom()
+
+
+	/**
+	 * Construct with a seed.
+	 * @param seed The seed.
+	 */
+	public MazeRandom(long seed) {
+		this.seed = seed;
+		this.state = seed;
+	} // end of MazeRandom()
+
+
+	/**
+	 * The seed, to make the same numbers again with MazeRandom(seed).
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return seed;
+	} // end of getSeed()
+
+
+	/**
+	 * Next random long.
+	 * @return A long, all values equally likely.
+	 */
+	public long nextLong() {
+		return mix64(state += GOLDEN_GAMMA);
+	} // end of nextLong()
+
+
+	/**
+	 * Next random int in a range.
+	 * @param bound The end of the range, positive.
+	 * @return An int from 0 to bound - 1, all equally likely.
+	 */
+	public int nextInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+		// multiply and shift, rejecting the few values that would bias the result
+		long m = (nextLong() >>> 32) * bound;
+		if ((m & 0xFFFFFFFFL) < bound) {
+			long threshold = ((1L << 32) - bound) % bound;
+			while ((m & 0xFFFFFFFFL) < threshold)
+				m = (nextLong() >>> 32) * bound;
+		}
+		return (int) (m >>> 32);
+	} // end of nextInt()
+
+
+	/**
+	 * Next random boolean.
+	 * @return True or false, equally likely.
+	 */
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	} // end of nextBoolean()
+
+
+	/**
+	 * Split off a new instance, seeded from the next number of this one.
+	 * @return The new instance.
+	 */
+	public MazeRandom split() {
+		return new MazeRandom(nextLong());
+	} // end of split()
+
+
+	/**
+	 * Independent stream for a part of some parallel work, e.g. a tile.
+	 * Does not change this instance.
+	 * @param index Index of the part.
+	 * @return A new instance, the same for the same seed and index.
+	 */
+	public MazeRandom stream(long index) {
+		return new MazeRandom(mix64(seed ^ mix64(index * GOLDEN_GAMMA + GOLDEN_GAMMA)));
+	} // end of stream()
+
+
+	/**
+	 * The SplitMix64 output function.
+	 * @param z The state.
+	 * @return The mixed bits.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	} // end of mix64()
+
+} // end of class MazeRandom
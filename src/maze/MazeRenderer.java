@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless renderer of a maze, drawing the same picture as draw() straight into
+ * an int[] of pixels and writing it as PNG, with no window and no StdDraw. The
+ * size of the picture follows the maze, at a given number of pixels per cell.
+ *
+ * Square walls are filled as horizontal or vertical spans. Hexagon walls are
+ * plotted from a stencil per direction, the pixels of that edge relative to the
+ * corner of the cell, computed once for the cell size.
+ *
+ * Any band of rows or rectangle of the picture can be rendered on its own, see
+ * renderRows() and renderRect(), and they may be rendered in parallel as long
+ * as the maze does not change.
+ */
+public class MazeRenderer {
+
+	/** The colors, as 0xRRGGBB. */
+	private static final int WHITE = 0xFFFFFF, BLACK = 0x000000, BLUE = 0x0000FF, RED = 0xFF0000, GRAY = 0x808080;
+
+	/**
+	 * The colors of the tunnels, as in TunnelMaze.draw(); not taken from StdDraw,
+	 * which opens its window as soon as it is loaded.
+	 */
+	private static final Color TUNNEL_COLORS[] = { Color.CYAN, Color.GREEN, Color.MAGENTA, Color.ORANGE,
+			Color.PINK, Color.YELLOW, new Color(9, 90, 166), new Color(103, 198, 243), new Color(150, 35, 31) };
+
+	/** The most pixels render() returns, the largest array the VM allocates. */
+	private static final int MAX_PIXELS = Integer.MAX_VALUE - 8;
+
+	/** The maze. */
+	private final NormalMaze maze;
+
+	/** The size of a cell in pixels. */
+	private final int cell;
+
+	/** The size of the picture in pixels. */
+	private final int width, height;
+
+	/** True for hexagon cells. */
+	private final boolean isHex;
+
+	/** stencilX[dir] and stencilY[dir], the pixels of the hexagon edge on direction dir, y up. */
+	private int stencilX[][], stencilY[][];
+
+	/**
+	 * Construct a renderer.
+	 * @param maze The maze.
+	 * @param cellPixels Size of a cell in pixels, at least 2.
+	 * @throws IllegalArgumentException If a cell takes fewer pixels, or the picture is too wide or high.
+	 */
+	public MazeRenderer(NormalMaze maze, int cellPixels) {
+		if (cellPixels < 2)
+			throw new IllegalArgumentException("A cell takes at least 2 pixels.");
+		this.maze = maze;
+		this.cell = cellPixels;
+		isHex = maze.type == Maze.HEX;
+		// a margin of a cell around the maze, and half a cell more for the shifted hexagon rows
+		long w = (maze.sizeC + 2L) * cell + (isHex ? cell / 2 : 0) + 1;
+		long h = (maze.sizeR + 2L) * cell + 1;
+		if (w > Integer.MAX_VALUE || h > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The picture is " + w + " by " + h + " pixels, wider or higher than "
+					+ Integer.MAX_VALUE + ".");
+		width = (int) w;
+		height = (int) h;
+		if (isHex)
+			makeStencils();
+	} // end of MazeRenderer()
+
+
+	/**
+	 * Width of the picture.
+	 * @return The width in pixels.
+	 */
+	public int getWidth() {
+		return width;
+	} // end of getWidth()
+
+
+	/**
+	 * Height of the picture.
+	 * @return The height in pixels.
+	 */
+	public int getHeight() {
+		return height;
+	} // end of getHeight()
+
+
+	/**
+	 * Render the whole picture.
+	 * @return The pixels as 0xRRGGBB, row by row from the top.
+	 * @throws IllegalArgumentException If the picture has too many pixels for an array.
+	 */
+	public int[] render() {
+		long pixels = (long) width * height;
+		if (pixels > MAX_PIXELS)
+			throw new IllegalArgumentException("The picture has " + pixels + " pixels, more than an array holds; "
+					+ "write it band by band with MazeExporter.");
+		int rgb[] = new int[(int) pixels];
+		renderRows(rgb, 0, height);
+		return rgb;
+	} // end of render()
+
+
+	/**
+	 * Render a band of rows of the picture.
+	 * @param rgb The pixels to fill as 0xRRGGBB, row by row, at least rows * getWidth() long.
+	 * @param y0 The first row, counted from the top.
+	 * @param rows The number of rows.
+	 */
+	public void renderRows(int rgb[], int y0, int rows) {
+		renderRect(rgb, 0, width, 0, y0, width, rows);
+	} // end of renderRows()
+
+
+	/**
+	 * Render a rectangle of the picture, drawing only the cells reaching it.
+	 * @param rgb The pixels to fill as 0xRRGGBB.
+	 * @param offset Index in rgb[] of the top left pixel of the rectangle.
+	 * @param stride Distance in rgb[] from a row of the rectangle to the next.
+	 * @param x0 The left column of the rectangle.
+	 * @param y0 The top row of the rectangle, counted from the top.
+	 * @param w The width of the rectangle.
+	 * @param h The height of the rectangle.
+	 */
+	public void renderRect(int rgb[], int offset, int stride, int x0, int y0, int w, int h) {
+		Clip clip = new Clip(rgb, offset, stride, x0, y0, w, h);
+		for (int j = 0; j < h; j ++)
+			Arrays.fill(rgb, offset + j * stride, offset + j * stride + w, WHITE);
+
+		// the rows and columns of cells reaching the rectangle, hexagons reach half a cell beyond theirs
+		int rLo = Math.max(0, (height - 1 - (y0 + h - 1)) / cell - 2);
+		int rHi = Math.min(maze.sizeR - 1, (height - 1 - y0) / cell);
+		int kLo = Math.max(0, x0 / cell - 3);
+		int kHi = Math.min(maze.sizeC - 1, (x0 + w - 1) / cell);
+
+		if (maze.entrance != null)
+			disc(clip, maze.index(maze.entrance), 3 * cell / 8, BLUE);
+		if (maze.exit != null)
+			disc(clip, maze.index(maze.exit), 3 * cell / 8, RED);
+
+		// the cells of a row are numbered in the order they are drawn
+		for (int r = rLo; r <= rHi; r ++) {
+			for (int id = r * maze.sizeC + kLo; id <= r * maze.sizeC + kHi; id ++) {
+				if (isHex)
+					hexWalls(clip, id);
+				else
+					squareWalls(clip, id);
+				if ((maze.isRecorded[id >>> 6] & (1L << id)) != 0)
+					disc(clip, id, cell / 4, GRAY);
+			}
+		}
+
+		if (maze instanceof TunnelMaze)
+			tunnels(clip, ((TunnelMaze) maze).tunnelEnd);
+	} // end of renderRect()
+
+
+	/**
+	 * Bounds of the pixels a cell may draw on, whether walls, discs or tunnel outlines.
+	 * @param id Index of the cell.
+	 * @return Left column, top row, right column and bottom row, rows counted from the top.
+	 */
+	int[] cellBounds(int id) {
+		int x = isHex ? cornerX(id) : (maze.col(id) + 1) * cell;
+		int y = (maze.row(id) + 1) * cell;
+		// hexagons reach a sixth of a cell above and below their row
+		int reach = isHex ? cell / 6 + 1 : 0;
+		return new int[] { x, height - 1 - (y + cell + reach), x + cell, height - 1 - (y - reach) };
+	} // end of cellBounds()
+
+
+	/**
+	 * Write the picture as PNG, band by band on the common pool, see MazeExporter.
+	 * @param file The file to write.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void writePng(File file) throws IOException {
+		new MazeExporter(this, ForkJoinPool.commonPool()).writePng(file);
+	} // end of writePng()
+
+
+	/**
+	 * Draw the walls of a square cell, as spans.
+	 * @param clip The rectangle to draw in.
+	 * @param id Index of the cell.
+	 */
+	private void squareWalls(Clip clip, int id) {
+		int x = (maze.col(id) + 1) * cell;
+		int y = (maze.row(id) + 1) * cell;
+		if (maze.isDrawnBy(id, Maze.EAST)) clip.vSpan(x + cell, y, y + cell, BLACK);
+		if (maze.isDrawnBy(id, Maze.NORTH)) clip.hSpan(x, x + cell, y + cell, BLACK);
+		if (maze.isDrawnBy(id, Maze.WEST)) clip.vSpan(x, y, y + cell, BLACK);
+		if (maze.isDrawnBy(id, Maze.SOUTH)) clip.hSpan(x, x + cell, y, BLACK);
+	} // end of squareWalls()
+
+
+	/**
+	 * Draw the walls of a hexagon cell, from the stencils.
+	 * @param clip The rectangle to draw in.
+	 * @param id Index of the cell.
+	 */
+	private void hexWalls(Clip clip, int id) {
+		int x = cornerX(id);
+		int y = (maze.row(id) + 1) * cell;
+		for (int dir = 0; dir < Maze.NUM_DIR; dir ++) {
+			if (!maze.isDrawnBy(id, dir))
+				continue;
+			int sx[] = stencilX[dir];
+			int sy[] = stencilY[dir];
+			for (int i = 0; i < sx.length; i ++)
+				clip.plot(x + sx[i], y + sy[i], BLACK);
+		}
+	} // end of hexWalls()
+
+
+	/**
+	 * Draw the outline of each tunnel end, in the color of its tunnel.
+	 * @param clip The rectangle to draw in.
+	 * @param ends The tunnel ends, ends[2i] and ends[2i+1] linked by tunnel i.
+	 */
+	private void tunnels(Clip clip, int ends[]) {
+		int lo = cell / 10, hi = cell - cell / 10;
+		for (int j = 0; j < ends.length; j ++) {
+			int color = TUNNEL_COLORS[j / 2 % TUNNEL_COLORS.length].getRGB() & 0xFFFFFF;
+			int x = (maze.col(ends[j]) + 1) * cell;
+			int y = (maze.row(ends[j]) + 1) * cell;
+			clip.vSpan(x + lo, y + lo, y + hi, color);
+			clip.vSpan(x + hi, y + lo, y + hi, color);
+			clip.hSpan(x + lo, x + hi, y + lo, color);
+			clip.hSpan(x + lo, x + hi, y + hi, color);
+		}
+	} // end of tunnels()
+
+
+	/**
+	 * Draw a filled circle at the center of a cell.
+	 * @param clip The rectangle to draw in.
+	 * @param id Index of the cell.
+	 * @param radius Radius in pixels.
+	 * @param color The color.
+	 */
+	private void disc(Clip clip, int id, int radius, int color) {
+		int cx = (isHex ? cornerX(id) : (maze.col(id) + 1) * cell) + cell / 2;
+		int cy = (maze.row(id) + 1) * cell + cell / 2;
+		for (int dy = -radius; dy <= radius; dy ++) {
+			int dx = (int) Math.sqrt(radius * radius - dy * dy);
+			clip.hSpan(cx - dx, cx + dx, cy + dy, color);
+		}
+	} // end of disc()
+
+
+	/**
+	 * The x of the left corner of a hexagon cell, whose column is shifted back
+	 * by (r + 1) / 2 and whose odd rows are shifted half a cell right.
+	 * @param id Index of the cell.
+	 * @return The x in pixels.
+	 */
+	private int cornerX(int id) {
+		int r = maze.row(id);
+		return (maze.col(id) - (r + 1) / 2 + 1) * cell + r % 2 * (cell / 2);
+	} // end of cornerX()
+
+
+	/**
+	 * Compute the pixels of each hexagon edge, from the ends used by HexMaze.draw().
+	 */
+	private void makeStencils() {
+		double h = 1.0 / 3;
+		double ends[][] = {
+			{ 1, 0.5 - h, 1, 0.5 + h },			// EAST
+			{ 0.5, 0.5 + 2 * h, 1, 0.5 + h },	// NORTHEAST
+			{ 0.5, 0.5 + 2 * h, 0, 0.5 + h },	// NORTHWEST
+			{ 0, 0.5 - h, 0, 0.5 + h },			// WEST
+			{ 0, 0.5 - h, 0.5, 0.5 - 2 * h },	// SOUTHWEST
+			{ 1, 0.5 - h, 0.5, 0.5 - 2 * h }	// SOUTHEAST
+		};
+		stencilX = new int[Maze.NUM_DIR][];
+		stencilY = new int[Maze.NUM_DIR][];
+		for (int dir = 0; dir < Maze.NUM_DIR; dir ++) {
+			// Bresenham from one end to the other
+			int x0 = (int) Math.round(ends[dir][0] * cell), y0 = (int) Math.round(ends[dir][1] * cell);
+			int x1 = (int) Math.round(ends[dir][2] * cell), y1 = (int) Math.round(ends[dir][3] * cell);
+			int dx = Math.abs(x1 - x0), dy = -Math.abs(y1 - y0);
+			int stepX = x0 < x1 ? 1 : -1, stepY = y0 < y1 ? 1 : -1;
+			int n = Math.max(dx, -dy) + 1;
+			stencilX[dir] = new int[n];
+			stencilY[dir] = new int[n];
+			for (int i = 0, err = dx + dy; i < n; i ++) {
+				stencilX[dir][i] = x0;
+				stencilY[dir][i] = y0;
+				int e2 = 2 * err;
+				if (e2 >= dy) {
+					err += dy;
+					x0 += stepX;
+				}
+				if (e2 <= dx) {
+					err += dx;
+					y0 += stepY;
+				}
+			}
+		}
+	} // end of makeStencils()
+
+
+	/**
+	 * A rectangle of the picture being rendered. Drawing takes x to the right
+	 * and y up from the bottom of the picture, as draw() does, and clips to the rectangle.
+	 */
+	private class Clip {
+
+		/** The pixels of the rectangle. */
+		private final int rgb[];
+
+		/** Index in rgb[] of the top left pixel and distance from a row to the next. */
+		private final int offset, stride;
+
+		/** The left column and top row of the rectangle, and its size. */
+		private final int x0, y0, w, h;
+
+		Clip(int rgb[], int offset, int stride, int x0, int y0, int w, int h) {
+			this.rgb = rgb;
+			this.offset = offset;
+			this.stride = stride;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.w = w;
+			this.h = h;
+		}
+
+		/**
+		 * Check whether a row, y up from the bottom of the picture, is in the rectangle.
+		 */
+		private boolean inRows(int y) {
+			int row = height - 1 - y - y0;
+			return row >= 0 && row < h;
+		}
+
+		/**
+		 * Index in rgb[] of the pixel at column x of a row in the rectangle.
+		 */
+		private int index(int x, int y) {
+			return offset + (height - 1 - y - y0) * stride + x - x0;
+		}
+
+		void plot(int x, int y, int color) {
+			if (inRows(y) && x >= x0 && x < x0 + w)
+				rgb[index(x, y)] = color;
+		}
+
+		void hSpan(int xa, int xb, int y, int color) {
+			xa = Math.max(xa, x0);
+			xb = Math.min(xb, x0 + w - 1);
+			if (inRows(y) && xa <= xb)
+				Arrays.fill(rgb, index(xa, y), index(xb, y) + 1, color);
+		}
+
+		void vSpan(int x, int ya, int yb, int color) {
+			if (x < x0 || x >= x0 + w)
+				return;
+			for (int y = ya; y <= yb; y ++) {
+				if (inRows(y))
+					rgb[index(x, y)] = color;
+			}
+		}
+	}
+
+} // end of class MazeRenderer
@@ -1,6 +1,10 @@
 package maze;
 
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.stream.IntStream;
 
 import maze.StdDraw;
 
@@ -14,9 +18,19 @@ import maze.StdDraw;
 public class NormalMaze extends Maze {
 
  	/**
- 	 * Boolean matrix to record visited cells by drawFtPrt(Cell)
+ 	 * Bits to record visited cells by drawFtPrt(), indexed by cell index
  	 */
- 	protected boolean isRecorded[][];
+ 	protected long isRecorded[];
+
+	/**
+	 * Largest size of the window in pixels
+	 */
+	protected static final int WINDOW_SIZE = 900;
+
+	/**
+	 * Picture of the maze shown in the window, null until the maze is drawn
+	 */
+	protected MazeCanvas canvas = null;
 
 
 	public NormalMaze() {
@@ -47,6 +61,26 @@ public class NormalMaze extends Maze {
 	} // end of isIn()
 	
 	
+	/**
+	 * Column coordinate of the first cell in a row.
+	 * @param r Row coordinate
+	 * @return Column coordinate of the first cell, as in map[r][c].
+	 */
+	protected int colOffset(int r) {
+		return 0;
+	} // end of colOffset()
+
+
+	/**
+	 * Check whether cells are linked on a direction in this type of maze.
+	 * @param dir The direction.
+	 * @return True if cells have neighbor and wall on direction dir. Otherwise false.
+	 */
+	protected boolean isDir(int dir) {
+		return dir != NORTHEAST && dir != SOUTHWEST;
+	} // end of isDir()
+
+
 	@Override
 	public boolean isOnEdge(int r, int c) {
 		if (isIn(r, c) && (r == 0 || r == sizeR - 1 || c == 0 || c == sizeC - 1)) 
@@ -58,82 +92,277 @@ public class NormalMaze extends Maze {
 	@Override
 	public void initMaze(int rs, int cs, int entR, int entC, int exitR, int exitC, List<int[]> tunnelList) {
 		// set up maze constants
+		modCount++;
+		canvas = null;
 		sizeR = rs;
 		sizeC = cs;
 		sizeTunnel = tunnelList.size();
 		
-		// set up map matrix
-		map = new Cell[sizeR][sizeC];
-		for (int i = 0; i < sizeR; i++){
-			for (int j = 0; j < sizeC; j++) {
-				Cell cell = new Cell(i, j);
-				map[i][j] = cell;
-				for (int k = 0; k < 3; k++) {
-					// 0: East 2: North
-					if (k == 1)
-						continue;
-					cell.wall[k] = new Wall();
-				}
-				for (int k = 3; k < NUM_DIR; k++) {
-					// 3: West 5: South
-					if (k == 4)
-						continue;
-					if (isIn(i + deltaR[k], j + deltaC[k])) {
-						Cell neigh = map[i + deltaR[k]][j + deltaC[k]];
-						cell.wall[k] = neigh.wall[oppoDir[k]];
-						cell.neigh[k] = neigh;
-						// Set cell as a eastern neighbor of its neighbor on the west side
-						neigh.neigh[oppoDir[k]] = cell;
-					}
-					else
+		if (storage != OBJECT_STORAGE) {
+			// set up wall bits, cells are only created by cellAt()
+			initWalls();
+		}
+		else {
+			// set up map matrix
+			map = new Cell[sizeR][sizeC];
+			for (int i = 0; i < sizeR; i++){
+				for (int j = 0; j < sizeC; j++) {
+					Cell cell = new Cell(i, j);
+					map[i][j] = cell;
+					for (int k = 0; k < 3; k++) {
+						// 0: East 2: North
+						if (k == 1)
+							continue;
 						cell.wall[k] = new Wall();
+					}
+					for (int k = 3; k < NUM_DIR; k++) {
+						// 3: West 5: South
+						if (k == 4)
+							continue;
+						if (isIn(i + deltaR[k], j + deltaC[k])) {
+							Cell neigh = map[i + deltaR[k]][j + deltaC[k]];
+							cell.wall[k] = neigh.wall[oppoDir[k]];
+							cell.neigh[k] = neigh;
+							// Set cell as a eastern neighbor of its neighbor on the west side
+							neigh.neigh[oppoDir[k]] = cell;
+						}
+						else
+							cell.wall[k] = new Wall();
+					}
 				}
 			}
 		}
 		
 		// set up entrance and exit
 		if (isIn(entR, entC))
-			entrance = map[entR][entC];
+			entrance = cellAt(index(entR, entC));
 		if (isIn(exitR, exitC))
-			exit = map[exitR][exitC];
+			exit = cellAt(index(exitR, exitC));
 
- 		// set up recording matrix for validation
- 		isRecorded = new boolean[sizeR][sizeC];
+ 		// set up recording array for validation
+ 		isRecorded = new long[(numCells() + 63) >>> 6];
 	} // end of initMaze()
 	
 	
+	/**
+	 * Set up the wall bits for a storage other than OBJECT_STORAGE.
+	 */
+	protected void initWalls() {
+		map = null;
+		if (storage == MAPPED_STORAGE) {
+			try {
+				walls = new MappedWalls(storageFile, type, sizeR, sizeC, storageKey);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot map " + storageFile, e);
+			}
+		}
+		else
+			walls = new PackedWalls(numCells(), type == HEX);
+	} // end of initWalls()
+	
+	
+	@Override
+	public int numCells() {
+		return sizeR * sizeC;
+	} // end of numCells()
+
+
+	@Override
+	public int index(int r, int c) {
+		return r * sizeC + c - colOffset(r);
+	} // end of index()
+
+
+	@Override
+	public int index(Cell cell) {
+		return index(cell.r, cell.c);
+	} // end of index()
+
+
+	@Override
+	public int row(int id) {
+		return id / sizeC;
+	} // end of row()
+
+
+	@Override
+	public int col(int id) {
+		int r = id / sizeC;
+		return id - r * sizeC + colOffset(r);
+	} // end of col()
+
+
+	@Override
+	public int neighbour(int id, int dir) {
+		if (!isDir(dir))
+			return -1;
+		int r = row(id) + deltaR[dir];
+		int c = col(id) + deltaC[dir];
+		if (!isIn(r, c))
+			return -1;
+		return index(r, c);
+	} // end of neighbour()
+
+
+	@Override
+	public boolean isWallPresent(int id, int dir) {
+		if (walls == null) {
+			Wall wall = map[row(id)][col(id)].wall[dir];
+			return wall == null || wall.present;
+		}
+		// the cell owns walls on EAST, NORTHEAST and NORTHWEST
+		if (dir < WEST)
+			return !isDir(dir) || !walls.isOpen(id, dir);
+		int neigh = neighbour(id, dir);
+		return neigh < 0 || !walls.isOpen(neigh, oppoDir[dir]);
+	} // end of isWallPresent()
+
+
+	@Override
+	public void setWallPresent(int id, int dir, boolean present) {
+		modCount++;
+		if (walls == null) {
+			Wall wall = map[row(id)][col(id)].wall[dir];
+			if (wall != null)
+				wall.present = present;
+			return;
+		}
+		// walls on the border are not stored and always present
+		int neigh = neighbour(id, dir);
+		if (neigh < 0)
+			return;
+		if (dir < WEST)
+			walls.setOpen(id, dir, !present);
+		else
+			walls.setOpen(neigh, oppoDir[dir], !present);
+	} // end of setWallPresent()
+
+
+	@Override
+	public int tunnel(int id) {
+		return -1;
+	} // end of tunnel()
+
+
+	@Override
+	public int[] tunnelEnds() {
+		return new int[0];
+	} // end of tunnelEnds()
+
+
+	@Override
+	public Cell cellAt(int id) {
+		if (map != null)
+			return map[row(id)][col(id)];
+
+		// build a view with its neighbors as plain cells
+		Cell cell = new Cell(row(id), col(id));
+		for (int k = 0; k < NUM_DIR; k++) {
+			if (!isDir(k))
+				continue;
+			cell.wall[k] = new Wall();
+			cell.wall[k].present = isWallPresent(id, k);
+			int neigh = neighbour(id, k);
+			if (neigh >= 0)
+				cell.neigh[k] = new Cell(row(neigh), col(neigh));
+		}
+		int other = tunnel(id);
+		if (other >= 0)
+			cell.tunnelTo = new Cell(row(other), col(other));
+		return cell;
+	} // end of cellAt()
+
+
 	@Override
 	public boolean isPerfect() {
-		boolean visited[][] = new boolean[sizeR][sizeC];
-		Queue<Cell> queue = new LinkedList<Cell>();
+		// a perfect maze is a tree: numCells - 1 passages, all connecting cells
+		int numCells = numCells();
+		if (countPassages() != numCells - 1)
+			return false;
+
+		long visited[] = new long[(numCells + 63) >>> 6];
+		// cells are marked visited when queued, so each one is queued at most once
+		int queue[] = new int[numCells];
+		int head = 0, tail = 0;
 		
-		queue.add(entrance);
+		queue[tail++] = index(entrance);
+		visited[queue[0] >>> 6] |= 1L << queue[0];
 		
-		while (!queue.isEmpty()) {
-			Cell currCell = queue.poll();
-			visited[currCell.r][currCell.c] = true;
-			int visitedNeigh = 0;
+		while (head < tail) {
+			int currCell = queue[head++];
+			int nextCell = tunnel(currCell);
+			if (nextCell >= 0 && (visited[nextCell >>> 6] & (1L << nextCell)) == 0) {
+				visited[nextCell >>> 6] |= 1L << nextCell;
+				queue[tail++] = nextCell;
+			}
 			for (int i = 0; i < NUM_DIR; i++) {
-				Cell nextCell = currCell.neigh[i];
-				if (!isIn(nextCell) || currCell.wall[i].present)
+				nextCell = neighbour(currCell, i);
+				if (nextCell < 0 || isWallPresent(currCell, i) || (visited[nextCell >>> 6] & (1L << nextCell)) != 0)
 					continue;
-				if (visited[nextCell.r][nextCell.c])
-					visitedNeigh += 1; 
-				else
-					queue.add(nextCell);
+				visited[nextCell >>> 6] |= 1L << nextCell;
+				queue[tail++] = nextCell;
 			}
-			
-			if (visitedNeigh > 1)
-				return false;
 		}
 		
-		for (int i = 0; i < sizeR; i++)
-			for (int j = 0; j < sizeC; j++)
-				if (!visited[i][j])
-					return false;
+		return tail == numCells;
+	} // end of isPerfect()
+
+
+	/**
+	 * Count the passages between cells, i.e. the carved walls and the tunnels.
+	 * Without wall storage the rows are counted in parallel.
+	 * @return The number of passages.
+	 */
+	protected long countPassages() {
+		long count = tunnelEnds().length / 2;
+		if (walls != null)
+			return count + walls.countOpen();
+		return count + IntStream.range(0, sizeR).parallel().mapToLong(r -> {
+			long open = 0;
+			// cells of row r are numbered r * sizeC to (r + 1) * sizeC - 1
+			for (int id = r * sizeC; id < (r + 1) * sizeC; id++) {
+				for (int k = 0; k < WEST; k++) {
+					if (isDir(k) && neighbour(id, k) >= 0 && !isWallPresent(id, k))
+						open++;
+				}
+			}
+			return open;
+		}).sum();
+	} // end of countPassages()
 		
+
+	/**
+	 * Direction of the border wall left open at the entrance or exit.
+	 * @param id Index of the entrance or exit cell.
+	 * @return The first direction without neighbor.
+	 */
+	protected int openSide(int id) {
+		for (int k = 0; k < NUM_DIR; k++) {
+			if (isDir(k) && neighbour(id, k) < 0)
+				return k;
+		}
+		return -1;
+	} // end of openSide()
+
+
+	/**
+	 * Check whether a wall of a cell is to be drawn when drawing that cell.
+	 * Walls shared by two cells are drawn by the cell owning it.
+	 * @param id Index of the cell.
+	 * @param dir Direction of the wall.
+	 * @return True if the wall should be drawn. Otherwise false.
+	 */
+	protected boolean isDrawnBy(int id, int dir) {
+		if (!isDir(dir) || !isWallPresent(id, dir))
+			return false;
+		if (dir >= WEST && neighbour(id, dir) >= 0)
+			return false;
+		if (id == index(entrance) && dir == openSide(id))
+			return false;
+		if (id == index(exit) && dir == openSide(id))
+			return false;
 		return true;
-	} // end of isPerfect()
+	} // end of isDrawnBy()
 
 	
 	@Override
@@ -142,72 +371,58 @@ public class NormalMaze extends Maze {
 		if (!isVisu)
 			return;
 		
-		for (int i = 0; i < sizeR; i++)
-			for (int j = 0; j < sizeC; j++)
-				for (int k = 0; k < NUM_DIR; k++) {
-					if (map[i][j].wall[k] != null)
-						map[i][j].wall[k].drawn = false;
-				}
-		
-		for (int k = 0; k < NUM_DIR; k++) {
-			if (k == 1 || k == 4)
-				continue;
-			if (entrance.neigh[k] == null) {
-				entrance.wall[k].drawn = true;
-				break;
-			}
-		}
-		
-		for (int k = 0; k < NUM_DIR; k++) {
-			if (k == 1 || k == 4)
-				continue;
-			if (exit.neigh[k] == null) {
-				exit.wall[k].drawn = true;
-				break;
-			}
-		}
-		
-		StdDraw.setCanvasSize(900, 900);
-		StdDraw.setXscale(-1, sizeC+1);
-		StdDraw.setYscale(-1, sizeR+1);
-
-		// draw entrance
-		StdDraw.setPenColor(StdDraw.BLUE);
-		if (entrance != null) {
-			StdDraw.filledCircle(entrance.c + 0.5, entrance.r + 0.5, 0.375);
-		}
-
-		// draw exit
-		StdDraw.setPenColor(StdDraw.RED);
-		if (exit != null) {
-			StdDraw.filledCircle(exit.c + 0.5, exit.r + 0.5, 0.375);
-		}        
-
-
-		// draw walls
-		StdDraw.setPenColor(StdDraw.BLACK);
-		for (int r = 0; r < sizeR; r++) {
-			for (int c = 0; c < sizeC; c++) {
-				if (map[r][c].wall[EAST].present && !map[r][c].wall[EAST].drawn) { StdDraw.line(c+1, r, c+1, r+1); map[r][c].wall[EAST].drawn = true; }
-				if (map[r][c].wall[NORTH].present && !map[r][c].wall[NORTH].drawn) { StdDraw.line(c, r+1, c+1, r+1); map[r][c].wall[NORTH].drawn = true; }
-				if (map[r][c].wall[WEST].present && !map[r][c].wall[WEST].drawn) { StdDraw.line(c, r, c, r+1); map[r][c].wall[WEST].drawn = true; }
-				if (map[r][c].wall[SOUTH].present && !map[r][c].wall[SOUTH].drawn) { StdDraw.line(c, r, c+1, r); map[r][c].wall[SOUTH].drawn = true; }
-			}
+		// set up the window once for the maze, then only repaint it
+		if (canvas == null) {
+			int cellPixels = Math.max(2, Math.min(WINDOW_SIZE / (sizeC + 3), WINDOW_SIZE / (sizeR + 2)));
+			canvas = new MazeCanvas(this, cellPixels);
+			int width = canvas.getImage().getWidth(), height = canvas.getImage().getHeight();
+			double scale = Math.min(1, (double) WINDOW_SIZE / Math.max(width, height));
+			StdDraw.setCanvasSize((int) Math.round(width * scale), (int) Math.round(height * scale));
 		}
+		else
+			canvas.invalidateAll();
+		drawChanges();
 	} // end of draw()
 
+
+	/**
+	 * Mark a cell as changed, e.g. a wall carved by a generator, to be drawn
+	 * again by drawChanges(). Nothing is marked before the maze is drawn.
+	 * @param id Index of the cell.
+	 */
+	public void invalidate(int id) {
+		if (canvas != null)
+			canvas.invalidate(id);
+	} // end of invalidate()
+
+
+	/**
+	 * Draw again the parts of the window marked as changed since the last draw.
+	 */
+	public void drawChanges() {
+		// draw nothing if visualization is switched off
+		if (!isVisu || canvas == null)
+			return;
+
+		Rectangle changed = canvas.repaint();
+		if (changed != null)
+			StdDraw.picture(canvas.getImage(), changed.x, changed.y, changed.width, changed.height);
+	} // end of drawChanges()
+
 	
 	@Override
 	public void drawFtPrt(Cell cell) {
+		drawFtPrt(index(cell));
+	} // end of drawFtPrt()
+
+
+	@Override
+	public void drawFtPrt(int id) {
  		// record every cell drawn
- 		isRecorded[cell.r][cell.c] = true;
+ 		isRecorded[id >>> 6] |= 1L << id;
 
-		// draw nothing if visualization is switched off
-		if (!isVisu)
-			return;
-		
-		StdDraw.setPenColor(StdDraw.GRAY);
-		StdDraw.filledCircle(cell.c + 0.5, cell.r + 0.5, 0.25);
+		invalidate(id);
+		drawChanges();
 	} // end of drawFtPrt()
 	
 
@@ -217,41 +432,48 @@ public class NormalMaze extends Maze {
                 int pathLength = 0;
                 int count = 0;
 
-                int stepCount[][] = new int[sizeR][sizeC];
-                Queue<Cell> queue = new LinkedList<Cell>();
+                // BFS over the recorded cells a level at a time, reached cells are marked in a bitset
+                long isReached[] = new long[isRecorded.length];
+                int numRecorded = Arrays.stream(isRecorded).parallel().mapToInt(Long::bitCount).sum();
+                // the entrance starts the search even when the solver did not record it
+                int queue[] = new int[numRecorded + 1];
+                int head = 0, tail = 0;
+
+                int start = index(entrance);
+                int end = index(exit);
+                queue[tail++] = start;
+                isReached[start >>> 6] |= 1L << start;
 
-                queue.add(entrance);
-                stepCount[entrance.r][entrance.c] = 1;
+                for (int step = 1; head < tail; step++) {
+                        int levelEnd = tail;
+                        while (head < levelEnd) {
+                                int cell = queue[head++];
+                                count++;
+                                if (cell == end)
+                                        pathLength = step;
 
-                while (!queue.isEmpty()) {
-                        Cell cell = queue.poll();
-                        count++;
-                        int step = stepCount[cell.r][cell.c];
+                                int next = tunnel(cell);
+                                if (next >= 0 && isToReach(next, isReached))
+                                        queue[tail++] = next;
 
-                        for (int i = 0; i < Maze.NUM_DIR; i++) {
-                                Cell next = cell.neigh[i];
-                                if (next != null && !cell.wall[i].present && isRecorded[next.r][next.c] && stepCount[next.r][next.c] == 0) {
-                                        stepCount[next.r][next.c] = step + 1;
-                                        queue.add(next);
+                                for (int i = 0; i < Maze.NUM_DIR; i++) {
+                                        next = neighbour(cell, i);
+                                        if (next >= 0 && !isWallPresent(cell, i) && isToReach(next, isReached))
+                                                queue[tail++] = next;
                                 }
                         }
                 }
 
-                if (stepCount[exit.r][exit.c] == 0) {
+                if (pathLength == 0) {
                         isValid = false;
                         System.out.println("[Validation] Exit is not reached.");
                 }
-                else {
-                        pathLength = stepCount[exit.r][exit.c];
-                }
 
-                for (int i = 0; i < sizeR; i++){
-                        for (int j = 0; j < sizeC; j++) {
-                                if (isValid && isRecorded[i][j] && stepCount[i][j] == 0) {
-                                        isValid = false;
-                                        System.out.println("[Validation] Visited cell not reachable.");
-                                }
-                        }
+                // recorded cells not reached, the words are independent so they are checked in parallel
+                if (isValid && IntStream.range(0, isRecorded.length).parallel()
+                                .anyMatch(w -> (isRecorded[w] & ~isReached[w]) != 0)) {
+                        isValid = false;
+                        System.out.println("[Validation] Visited cell not reachable.");
                 }
 
                 if (isValid) {
@@ -262,4 +484,19 @@ public class NormalMaze extends Maze {
                 return isValid;
         } // end of validate()
 
+
+        /**
+         * Mark a cell reached, if it is recorded and not reached yet.
+         * @param id Index of the cell.
+         * @param isReached Bits of the cells reached, indexed by cell index.
+         * @return True if the cell is newly marked. Otherwise false.
+         */
+        private boolean isToReach(int id, long isReached[]) {
+                long bit = 1L << id;
+                if ((isRecorded[id >>> 6] & bit) == 0 || (isReached[id >>> 6] & bit) != 0)
+                        return false;
+                isReached[id >>> 6] |= bit;
+                return true;
+        } // end of isToReach()
+
 } // end of class NormalMaze
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+/**
+ * Wall storage keeping the bits in long arrays on the Java heap,
+ * used when the storage of the maze is PACKED_STORAGE.
+ */
+public class PackedWalls extends WallStore {
+
+	/**
+	 * open[dir] holds the bits of direction dir, null if the maze has no such direction
+	 */
+	private long open[][] = new long[Maze.NUM_DIR / 2][];
+
+	/**
+	 * Construct an all-wall storage.
+	 * @param numCells Number of cells in the maze.
+	 * @param isHex True if cells have NORTHEAST walls, i.e. a hexagon maze.
+	 */
+	public PackedWalls(int numCells, boolean isHex) {
+		int words = (numCells + 63) >>> 6;
+		open[Maze.EAST] = new long[words];
+		open[Maze.NORTH] = new long[words];
+		if (isHex)
+			open[Maze.NORTHEAST] = new long[words];
+	} // end of PackedWalls()
+
+
+	@Override
+	public boolean isOpen(int id, int dir) {
+		return (open[dir][id >>> 6] & (1L << id)) != 0;
+	} // end of isOpen()
+
+
+	@Override
+	public void setOpen(int id, int dir, boolean isOpen) {
+		if (isOpen)
+			open[dir][id >>> 6] |= 1L << id;
+		else
+			open[dir][id >>> 6] &= ~(1L << id);
+	} // end of setOpen()
+
+
+	@Override
+	public long countOpen() {
+		long count = 0;
+		for (long bits[] : open) {
+			if (bits == null)
+				continue;
+			for (long word : bits)
+				count += Long.bitCount(word);
+		}
+		return count;
+	} // end of countOpen()
+
+} // end of class PackedWalls
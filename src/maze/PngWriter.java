@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writer of a PNG image, 8 bit RGB, taking the pixels a strip of rows at a time
+ * so that an image never has to be held whole in memory. The strips are deflated
+ * ahead, by any thread, with deflate(), then written in order with writeStrip()
+ * in IDAT chunks of up to CHUNK_SIZE bytes. Each strip is a run of complete
+ * deflate blocks ending on a byte, so the strips simply follow each other in the
+ * zlib stream, and their checksums are combined.
+ */
+class PngWriter {
+
+	/** The PNG signature. */
+	private static final byte SIGNATURE[] = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	/** The largest IDAT chunk written. */
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	/** The largest prime below 65536, the modulus of Adler-32. */
+	private static final int ADLER_BASE = 65521;
+
+	/** The zlib header, deflate with a 32K window, and an empty final deflate block. */
+	private static final byte ZLIB_HEADER[] = { 0x78, 0x01 }, FINAL_BLOCK[] = { 0x03, 0x00 };
+
+	/** The deflate level, mazes are mostly blank and the fastest level compresses them well. */
+	private static final int LEVEL = Deflater.BEST_SPEED;
+
+	/** The output. */
+	private final DataOutputStream out;
+
+	/** The zlib stream, cut into IDAT chunks of CHUNK_SIZE bytes but the last. */
+	private final OutputStream idat = new BufferedOutputStream(new ChunkStream(), CHUNK_SIZE);
+
+	/** The Adler-32 of the strips written so far, -1 before the first. */
+	private long adler = -1;
+
+	/**
+	 * Rows of pixels deflated ahead by deflate().
+	 */
+	static class Strip {
+
+		/** The deflate blocks. */
+		private final byte data[];
+
+		/** The number of bytes in data[]. */
+		private final int length;
+
+		/** The number of bytes the rows take before deflating. */
+		private final long rawLength;
+
+		/** The Adler-32 of the rows before deflating. */
+		private final long adler;
+
+		private Strip(byte data[], int length, long rawLength, long adler) {
+			this.data = data;
+			this.length = length;
+			this.rawLength = rawLength;
+			this.adler = adler;
+		}
+	}
+
+	/**
+	 * Start an image, writing its header.
+	 *
+	 * @param out the output, not closed by close()
+	 * @param width the width in pixels
+	 * @param height the height in pixels
+	 * @throws IOException if writing fails
+	 */
+	PngWriter(OutputStream out, int width, int height) throws IOException {
+		this.out = new DataOutputStream(out);
+		this.out.write(SIGNATURE);
+
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(8);	// bit depth
+		data.writeByte(2);	// color type, RGB
+		data.writeByte(0);	// compression
+		data.writeByte(0);	// filter
+		data.writeByte(0);	// no interlace
+		writeChunk("IHDR", header.toByteArray(), 0, header.size());
+	}
+
+	/**
+	 * Deflate rows of pixels into a strip, for writeStrip(). Strips of the same
+	 * image may be deflated at the same time by different threads.
+	 *
+	 * @param rgb the pixels as 0xRRGGBB, row by row
+	 * @param width the width in pixels
+	 * @param rows the number of rows
+	 * @return the strip
+	 */
+	static Strip deflate(int rgb[], int width, int rows) {
+		byte raw[] = new byte[rows * (1 + 3 * width)];
+		for (int y = 0, i = 0; y < rows; y ++) {
+			raw[i ++] = 0;	// no filter
+			for (int x = 0, p = y * width; x < width; x ++) {
+				int c = rgb[p + x];
+				raw[i ++] = (byte) (c >>> 16);
+				raw[i ++] = (byte) (c >>> 8);
+				raw[i ++] = (byte) c;
+			}
+		}
+		Adler32 check = new Adler32();
+		check.update(raw);
+
+		// raw deflate, flushed to a byte so that the next strip can follow
+		Deflater strip = new Deflater(LEVEL, true);
+		strip.setInput(raw);
+		byte data[] = new byte[raw.length / 16 + 64];
+		int length = 0;
+		while ((length += strip.deflate(data, length, data.length - length, Deflater.SYNC_FLUSH)) == data.length)
+			data = Arrays.copyOf(data, data.length * 2);
+		strip.end();
+		return new Strip(data, length, raw.length, check.getValue());
+	}
+
+	/**
+	 * Write a strip, following the strips written so far.
+	 *
+	 * @param strip the strip, of the rows that follow the rows written so far
+	 * @throws IOException if writing fails
+	 */
+	void writeStrip(Strip strip) throws IOException {
+		if (adler < 0) {
+			idat.write(ZLIB_HEADER, 0, ZLIB_HEADER.length);
+			adler = 1;
+		}
+		idat.write(strip.data, 0, strip.length);
+		adler = combine(adler, strip.adler, strip.rawLength);
+	}
+
+	/**
+	 * Adler-32 of two runs of bytes one after the other, from the Adler-32 of each.
+	 *
+	 * @param adler1 the Adler-32 of the first run
+	 * @param adler2 the Adler-32 of the second run
+	 * @param length2 the length of the second run
+	 * @return the Adler-32 of both
+	 */
+	private static long combine(long adler1, long adler2, long length2) {
+		long rem = length2 % ADLER_BASE;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = rem * sum1 % ADLER_BASE;
+		sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+		sum2 += (adler1 >>> 16) + (adler2 >>> 16) + ADLER_BASE - rem;
+		return sum1 % ADLER_BASE | sum2 % ADLER_BASE << 16;
+	}
+
+	/**
+	 * End the image, once all strips are written.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	void close() throws IOException {
+		if (adler < 0)
+			writeStrip(new Strip(new byte[0], 0, 0, 1));
+		idat.write(FINAL_BLOCK, 0, FINAL_BLOCK.length);
+		idat.write(new byte[] { (byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler }, 0, 4);
+		idat.flush();
+		writeChunk("IEND", new byte[0], 0, 0);
+		out.flush();
+	}
+
+	/**
+	 * Write a chunk.
+	 *
+	 * @param type the chunk type
+	 * @param data the array holding the chunk data
+	 * @param offset the index of the data in data[]
+	 * @param length the number of bytes of data
+	 * @throws IOException if writing fails
+	 */
+	private void writeChunk(String type, byte data[], int offset, int length) throws IOException {
+		byte name[] = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(name);
+		crc.update(data, offset, length);
+		out.writeInt(length);
+		out.write(name);
+		out.write(data, offset, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	/**
+	 * The stream of deflated pixels, cut into IDAT chunks.
+	 */
+	private class ChunkStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte b[], int off, int len) throws IOException {
+			for (int n; len > 0; off += n, len -= n) {
+				n = Math.min(len, CHUNK_SIZE);
+				writeChunk("IDAT", b, off, n);
+			}
+		}
+	}
+}
@@ -14,9 +14,4 @@ public class Wall {
 	 */
 	public boolean present = true;
 	
-	/**
-	 * Used only for visualization functions.
-	 */
-	public boolean drawn = false;
-
 } // end of class Wall
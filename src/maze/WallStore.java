@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package maze;
+
+/**
+ * Wall storage of a maze packed into bits, used instead of Cell and Wall objects
+ * when the storage of the maze is not OBJECT_STORAGE.
+ *
+ * A cell is addressed by its index in the maze (see Maze.index(r, c)) and owns the
+ * walls on its EAST, NORTHEAST and NORTHWEST (NORTH) sides. The wall on any other side
+ * is owned by the neighbor on that side, and walls on the border of the maze are
+ * never carved. There is one bit per cell for each owned direction, set if the wall
+ * has been carved, so a new maze is all walls.
+ */
+public abstract class WallStore {
+
+	/**
+	 * Check whether an owned wall has been carved.
+	 * @param id Index of the cell owning the wall.
+	 * @param dir Direction of the wall, EAST, NORTHEAST or NORTHWEST.
+	 * @return True if carved. Otherwise false.
+	 */
+	public abstract boolean isOpen(int id, int dir);
+
+
+	/**
+	 * Carve or build an owned wall.
+	 * @param id Index of the cell owning the wall.
+	 * @param dir Direction of the wall, EAST, NORTHEAST or NORTHWEST.
+	 * @param isOpen True to carve the wall, false to build it.
+	 */
+	public abstract void setOpen(int id, int dir, boolean isOpen);
+
+
+	/**
+	 * Count the carved walls.
+	 * @return The number of bits set, over all directions.
+	 */
+	public abstract long countOpen();
+
+
+	/**
+	 * Check whether the walls were loaded from an earlier run, complete and generated
+	 * the same way, rather than built as all walls.
+	 * @return True if loaded. Otherwise false.
+	 */
+	public boolean isLoaded() {
+		return false;
+	} // end of isLoaded()
+
+
+	/**
+	 * Write the walls changed so far to where they are kept, if that is not the heap.
+	 */
+	public void flush() {
+	} // end of flush()
+
+
+	/**
+	 * Record that the walls are completely generated, so that a later run may load them.
+	 */
+	public void markComplete() {
+	} // end of markComplete()
+
+} // end of class WallStore
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeGenerator;
+
+import maze.NormalMaze;
+
+/**
+ * Listener drawing the generation of a maze as it goes, in the window of the
+ * maze. Each carve marks the two cells of the wall as changed, and the changes
+ * are drawn at most once a frame, so a large maze is not slowed down by a
+ * repaint per carve. The maze must be drawn before generating, see
+ * NormalMaze.draw().
+ */
+public class DrawingListener implements GenerationListener {
+	/** The time between two frames in nanoseconds. */
+	private static final long FRAME_NANOS = 20_000_000L;
+
+	/** The maze. */
+	private final NormalMaze maze;
+
+	/** The time of the next frame, as of System.nanoTime(). */
+	private long nextFrame;
+
+	/**
+	 * Construct a listener.
+	 * @param maze The maze, drawn already.
+	 */
+	public DrawingListener(NormalMaze maze) {
+		this.maze = maze;
+		nextFrame = System.nanoTime();
+	} // end of DrawingListener()
+
+
+	@Override
+	public void carve(int id, int dir) {
+		maze.invalidate(id);
+		int ne = maze.neighbour(id, dir);
+		if (ne >= 0)
+			maze.invalidate(ne);
+		if (System.nanoTime() - nextFrame >= 0) {
+			maze.drawChanges();
+			nextFrame = System.nanoTime() + FRAME_NANOS;
+		}
+	} // end of carve()
+
+
+	@Override
+	public void phaseEnd(String phase) {
+		// show the last carves of the phase
+		maze.drawChanges();
+	} // end of phaseEnd()
+
+} // end of class DrawingListener
@@ -0,0 +1,68 @@
+package mazeGenerator;
+
+/**
+ * Listener of the progress of a maze generator, e.g. to feed dashboards or to
+ * spot a pathological seed. Every method does nothing unless overridden.
+ *
+ * A generator calls its listener on every carve, so a listener must be quick.
+ * Generators start with NONE, whose calls the JIT inlines to nothing, so a
+ * generator nobody listens to pays nothing for it.
+ */
+public interface GenerationListener
+{
+	/**
+	 * The listener doing nothing, the default of every generator.
+	 */
+	public static final GenerationListener NONE = new GenerationListener() {
+	};
+
+	/**
+	 * Number of carves between two reports of the counters.
+	 */
+	public static final int COUNTER_PERIOD = 1 << 16;
+
+
+	/**
+	 * Called when a phase of the generation starts.
+	 * @param phase Name of the phase, depending on the generator.
+	 */
+	public default void phaseStart(String phase) {
+	}
+
+
+	/**
+	 * Called when a phase of the generation ends.
+	 * @param phase Name of the phase, as given to phaseStart().
+	 */
+	public default void phaseEnd(String phase) {
+	}
+
+
+	/**
+	 * Called when a wall is carved.
+	 * @param id Index of the cell.
+	 * @param dir Direction of the wall carved.
+	 */
+	public default void carve(int id, int dir) {
+	}
+
+
+	/**
+	 * Called when the generator backtracks from a dead end.
+	 * @param id Index of the dead end.
+	 * @param depth Number of cells left on the path back to the start.
+	 */
+	public default void backtrack(int id, int depth) {
+	}
+
+
+	/**
+	 * Called every COUNTER_PERIOD carves, and at the end, with each counter of the generator:
+	 * "carved" for all generators, "sets" and "maxRank" (bounding the union-find depth) for Kruskal,
+	 * "frontier" for Prim, and "depth" of the path back for the backtracker.
+	 * @param name Name of the counter.
+	 * @param value Value of the counter.
+	 */
+	public default void counter(String name, long value) {
+	}
+} // end of interface GenerationListener
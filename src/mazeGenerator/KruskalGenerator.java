@@ -3,12 +3,8 @@
  */
 package mazeGenerator;
 
-import maze.Cell;
 import maze.Maze;
-
-import java.util.*;
-
-import static maze.Maze.*;
+import maze.MazeRandom;
 
 /**
  * This generator is based on Kruskal’s algorithm for computing minimum spanning trees (hence the
@@ -25,9 +21,54 @@ import static maze.Maze.*;
  */
 public class KruskalGenerator implements MazeGenerator {
 
+	/** The most edges the list of edges can hold, the largest array the JVM allocates. */
+	private static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
 	/** The maze reference. */
 	private Maze maze;
 
+	/** The rand, seeded so that a maze can be generated again. */
+	private MazeRandom rand;
+
+	/** The listener, GenerationListener.NONE if none. */
+	private GenerationListener listener = GenerationListener.NONE;
+
+	/**
+	 * Instantiates a new generator with a random seed.
+	 */
+	public KruskalGenerator() {
+		rand = new MazeRandom();
+	}
+
+	/**
+	 * Instantiates a new generator.
+	 *
+	 * @param seed the seed of the random edge order
+	 */
+	public KruskalGenerator(long seed) {
+		rand = new MazeRandom(seed);
+	}
+
+	/**
+	 * Sets the random numbers, e.g. a stream of a shared seed.
+	 *
+	 * @param rand the random numbers
+	 */
+	@Override
+	public void setRandom(MazeRandom rand) {
+		this.rand = rand;
+	}
+
+	/**
+	 * Sets the listener of the progress.
+	 *
+	 * @param listener the listener, null for none
+	 */
+	@Override
+	public void setListener(GenerationListener listener) {
+		this.listener = listener == null ? GenerationListener.NONE : listener;
+	}
+
 	/**
 	 * Generate maze.
 	 *
@@ -36,161 +77,102 @@ public class KruskalGenerator implements MazeGenerator {
 	@Override
 	public void generateMaze(Maze maze) {
 		this.maze = maze;
-		/* Create a list of edges */
-		ArrayList<Path> edges = new ArrayList<>();
-		ArrayList<Cell> cells = new ArrayList<>();
-		// Add cells and edges into arraylist
-		for (int i = 0; i < maze.sizeR; i ++) {
-			int initC = 0, sizeC = maze.sizeC;
-			if(maze.type == HEX) {
-				initC = (i + 1) / 2;
-				sizeC = sizeC + (i + 1) / 2;
+		int numCells = maze.numCells();
+		listener.phaseStart("edges");
+		/* Create an array of edges, see edge() for the encoding */
+		long numAll = 0;
+		for (int current = 0; current < numCells; current ++) {
+			for(int k = 0; k < 3; k ++) {
+				if(maze.neighbour(current, k) >= 0)
+					numAll ++;
 			}
-			for (int j = initC; j < sizeC; j ++) {
-				Cell current = maze.map[i][j];
-				// Add cell into cells arraylist
-				cells.add(current);
-				for(int k = 0; k < 3; k ++) {
-					Cell ne = current.neigh[k];
-					// If neighbor is in the maze
-					if(isIn(ne)) {
-						// If there is a tunnel from neighbor to some cell
-						if (ne.tunnelTo != null) {
-							ne = ne.tunnelTo;
-						}
-						// Add edge from cell to where its neighbor tunnel to
-						edges.add(new Path(current, ne));
+		}
+		// counted in long, as a hexagon maze of about 715M cells has more edges than an array holds
+		if (numAll > MAX_EDGES)
+			throw new IllegalArgumentException("The maze has " + numAll + " walls between cells, "
+					+ "more than the " + MAX_EDGES + " the list of edges can hold.");
+		long edges[] = new long[(int) numAll];
+		int numEdges = 0;
+		for (int current = 0; current < numCells; current ++) {
+			for(int k = 0; k < 3; k ++) {
+				int ne = maze.neighbour(current, k);
+				// If neighbor is in the maze
+				if(ne >= 0) {
+					// If there is a tunnel from neighbor to some cell
+					if (maze.tunnel(ne) >= 0) {
+						ne = maze.tunnel(ne);
 					}
+					// Add edge from cell to where its neighbor tunnel to
+					edges[numEdges ++] = edge(current, k, ne);
 				}
 			}
 		}
 		// Initialize a Disjoint set instance
-		DisjointSet djSet = new DisjointSet(cells);
-
-		// Shuffle edges in the arraylist for randomly retrieving edge
-		Collections.shuffle(edges);
-
-		for (Path e : edges) {
-			Cell u = e.getU();
-			Cell v = e.getV();
-			if (djSet.find(u) != djSet.find(v)) {
-				// cell v and u are not in the same set 
-				
-				for(int k = 0; k < NUM_DIR; k ++) {
-					// Find the wall shared by u and v
-					Cell ne = u.neigh[k];
-					// Skip if neighbor is not in the maze
-					if(!isIn(ne)) continue;
-					// carve the wall if find a neighbor of u equal to v
-					// or neighbor equal to the cell tunnel from v
-					if(ne == v || ne == v.tunnelTo) {
-						u.wall[k].present = false;
-					}
-				}
-				// Join two sets
-				djSet.union(u, v);
+		DisjointSet djSet = new DisjointSet(numCells);
+		listener.phaseEnd("edges");
+
+		// Shuffle edges in place (Fisher-Yates) for randomly retrieving edge
+		listener.phaseStart("shuffle");
+		for (int i = numEdges - 1; i > 0; i --) {
+			int j = rand.nextInt(i + 1);
+			long e = edges[i];
+			edges[i] = edges[j];
+			edges[j] = e;
+		}
+		listener.phaseEnd("shuffle");
+
+		listener.phaseStart("union");
+		long carved = 0;
+		for (long e : edges) {
+			int side = (int) e;
+			int u = Integer.divideUnsigned(side, 3);
+			int v = (int) (e >>> 32);
+			// Join two sets, if cell v and u are not in the same set,
+			// and carve the wall between u and its neighbor leading to v
+			if (djSet.union(u, v)) {
+				int dir = Integer.remainderUnsigned(side, 3);
+				maze.setWallPresent(u, dir, false);
+				listener.carve(u, dir);
+				if (++ carved % GenerationListener.COUNTER_PERIOD == 0)
+					reportCounters(carved, djSet);
 			}
 		}
+		reportCounters(carved, djSet);
+		listener.phaseEnd("union");
 
 	} // end of generateMaze()
 
 	/**
-	 * Checks if cell is in the maze.
+	 * Report the counters to the listener.
 	 *
-	 * @param r the row index of cell
-	 * @param c the column index of cell
-	 * @return true, if the cell is in the maze
-	 */
-	protected boolean isIn(int r, int c) {
-		boolean result = r >= 0 && r < maze.sizeR && c >= 0 && c < maze.sizeC;
-		if(maze.type == HEX)
-			result = r >= 0 && r < maze.sizeR && c >= (r + 1) / 2 && c < maze.sizeC + (r + 1) / 2;
-
-		return result;
-	} // end of isIn()
-
-
-	/**
-	 * Check whether the cell is in the maze.
-	 * @param cell The cell being checked.
-	 * @return True if in the maze. Otherwise false.
-	 */
-	protected boolean isIn(Cell cell) {
-		if (cell == null)
-			return false;
-		return isIn(cell.r, cell.c);
-	} // end of isIn()
-
-
-	/**
-	 * The Class Path.
+	 * @param carved the number of walls carved
+	 * @param djSet the disjoint set
 	 */
-	protected class Path {
-		
-		/** The cell u and cell v of the path */
-		private Cell u, v;
-
-		/**
-		 * Instantiates a new path connects two cell u and v
-		 *
-		 * @param u the u cell
-		 * @param v the v cell
-		 */
-		public Path(Cell u, Cell v) {
-			this.u = u;
-			this.v = v;
-		}
-
-		/**
-		 * Gets the u cell
-		 *
-		 * @return the u
-		 */
-		public Cell getU() {
-			return u;
-		}
-
-		/**
-		 * Gets the v cell.
-		 *
-		 * @return the v
-		 */
-		public Cell getV() {
-			return v;
-		}
+	private void reportCounters(long carved, DisjointSet djSet) {
+		listener.counter("carved", carved);
+		listener.counter("sets", djSet.numOfSets);
+		listener.counter("maxRank", djSet.maxRank);
 	}
 
 	/**
-	 * The Class Node.
+	 * Encode an edge into a long: the cell v it leads to in the high 32 bits, and
+	 * u * 3 + dir in the low 32 bits as an unsigned int, which holds for mazes
+	 * up to 1431655765 cells. The number of edges, MAX_EDGES at most, limits the
+	 * size of the maze first: about 1073M cells for square mazes, 715M for hexagon ones.
+	 *
+	 * @param u the cell the edge starts from
+	 * @param dir the direction of the wall of u, EAST, NORTHEAST or NORTHWEST
+	 * @param v the cell the edge leads to, the neighbor or where it tunnels to
+	 * @return the encoded edge
 	 */
-	protected class Node {
-
-		/** The num of childs. */
-		int numOfChilds = 0;
-		
-		/** The cell. */
-		Cell cell;
-		
-		/** The parent node. */
-		Node parent = null;
-
-		/**
-		 * Instantiates a new node.
-		 *
-		 * @param c the cell stored in node
-		 * @param n the number of child of this node
-		 * @param p the parent node
-		 */
-		public Node(Cell c, int n, Node p) {
-			cell = c;
-			numOfChilds = n;
-			parent = p;
-		}
-
+	private static long edge(int u, int dir, int v) {
+		return (long) v << 32 | (u * 3L + dir);
 	}
 
 	/**
-	 * The Class DisjointSet.
+	 * The Class DisjointSet. Cells are identified by their index in the maze,
+	 * each cell points to its parent in parent[], and a cell pointing to itself
+	 * is the root of its set.
 	 */
 	protected class DisjointSet {
 
@@ -200,97 +182,88 @@ public class KruskalGenerator implements MazeGenerator {
 		/** The num of sets it stores.  */
 		int numOfSets = 0;
 
-		/** The map to store nodes indexed by row number and column number . */
-		private Map<Integer, Map<Integer, Node>> mapR = new HashMap<>();
+		/** The parent of each cell. */
+		private int parent[];
+
+		/** The rank of each root, an upper bound of the height of its tree. */
+		private byte rank[];
+
+		/** The highest rank, an upper bound of the height of every tree. */
+		int maxRank = 0;
 
 		/**
 		 * Instantiates a new disjoint set.
 		 *
-		 * @param cells the arraylist of cells
+		 * @param numCells the number of cells
 		 */
-		public DisjointSet(List<Cell> cells) {
-			makeSets(cells);
+		public DisjointSet(int numCells) {
+			makeSets(numCells);
 		}
 
 		/**
 		 * Make single sets.
 		 * Join 2 cells with tunnel in between if maze type if TUNNEL
 		 *
-		 * @param cells the arraylist of cells
+		 * @param numCells the number of cells
 		 */
-		private void makeSets(List<Cell> cells) {
-			for(Cell c: cells) {
-				makeSet(c);
+		private void makeSets(int numCells) {
+			parent = new int[numCells];
+			rank = new byte[numCells];
+			for(int c = 0; c < numCells; c ++) {
+				parent[c] = c;
 			}
+			numOfNodes = numCells;
+			numOfSets = numCells;
 			// Union Tunnel cells
-			for(Cell c: cells) {
-				Cell linkedCell = c.tunnelTo;
-				if(linkedCell!=null && find(c) != find(linkedCell)) {
-						union(c, linkedCell);
+			for(int c = 0; c < numCells; c ++) {
+				int linkedCell = maze.tunnel(c);
+				if(linkedCell >= 0) {
+					union(c, linkedCell);
 				}
 			}
 		}
 
 		/**
-		 * Make set. Put cell into Map with its row and column indexs,
-		 *
-		 * @param c the cell passed in
-		 */
-		private void makeSet(Cell c) {
-			Node n = new Node(c, 0, null);
-			Map<Integer, Node> mapC = mapR.get(c.r);
-			
-			if(mapC == null) {
-				mapC = new HashMap<>();
-				mapC.put(c.c, n);
-				mapR.put(c.r, mapC);
-			} else {
-				mapC.put(c.c, n);
-			}
-			
-			this.numOfSets ++;
-			this.numOfNodes ++;
-		}
-
-		/**
-		 * Find the root node of a set of a passed in cell
+		 * Find the root of the set of a passed in cell. Path halving:
+		 * every visited cell is pointed to its grandparent on the way up.
 		 *
 		 * @param c the cell
-		 * @return the node
+		 * @return the root cell
 		 */
-		public Node find(Cell c) {
-			Map<Integer, Node> mapC = mapR.get(c.r);
-			Node current = mapC.get(c.c);
-			while (current.parent != null)
-				current = current.parent;
-
-			Node root = current;
-			return root;
+		public int find(int c) {
+			while (parent[c] != c) {
+				parent[c] = parent[parent[c]];
+				c = parent[c];
+			}
+			return c;
 		}
 
 		/**
-		 * Union. To join 2 sets, attaches small tree to a
-		 * taller tree with more nodes it has.
+		 * Union. To join 2 sets, attaches the tree of lower rank
+		 * under the root of the other one.
 		 *
 		 * @param a the cell a
 		 * @param b the cell b
+		 * @return true, if a and b were in different sets
 		 */
-		public void union(Cell a, Cell b) {
-			Node aTreeRoot = find(a);
-			Node bTreeRoot = find(b);
+		public boolean union(int a, int b) {
+			int aTreeRoot = find(a);
+			int bTreeRoot = find(b);
 
-			if (aTreeRoot.equals(bTreeRoot) ) return;
+			if (aTreeRoot == bTreeRoot) return false;
 
-			if (aTreeRoot.numOfChilds < bTreeRoot.numOfChilds) {
-				aTreeRoot.parent = bTreeRoot;
-			} else if (aTreeRoot.numOfChilds > bTreeRoot.numOfChilds) {
-				bTreeRoot.parent = aTreeRoot;
+			if (rank[aTreeRoot] < rank[bTreeRoot]) {
+				parent[aTreeRoot] = bTreeRoot;
+			} else if (rank[aTreeRoot] > rank[bTreeRoot]) {
+				parent[bTreeRoot] = aTreeRoot;
 			} else {
-				bTreeRoot.parent = aTreeRoot;
-				aTreeRoot.numOfChilds += bTreeRoot.numOfChilds;
+				parent[bTreeRoot] = aTreeRoot;
+				if (++ rank[aTreeRoot] > maxRank)
+					maxRank = rank[aTreeRoot];
 			}
 			// Decrease set count.
 			this.numOfSets --;
+			return true;
 		}
 
 
@@ -1,6 +1,7 @@
 package mazeGenerator;
 
 import maze.Maze;
+import maze.MazeRandom;
 
 /**
  * Interface of a maze generator.
@@ -16,4 +17,20 @@ public interface MazeGenerator
 	 * @param maze The reference of Maze object to generate. 
 	 */
 	public void generateMaze(Maze maze);
+
+	/**
+	 * Set the random numbers of the generator, so that the same seed generates the same maze.
+	 * Generators without random choices ignore it.
+	 * @param rand The random numbers; parallel generators take a stream per tile from it.
+	 */
+	public default void setRandom(MazeRandom rand) {
+	}
+
+	/**
+	 * Set the listener of the progress of the generator, null for none, which is the default.
+	 * Generators not reporting their progress ignore it.
+	 * @param listener The listener, null for none.
+	 */
+	public default void setListener(GenerationListener listener) {
+	}
 } // end of interface mazeGenerator
\ No newline at end of file
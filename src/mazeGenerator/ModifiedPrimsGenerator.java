@@ -3,12 +3,12 @@
  */
 package mazeGenerator;
 
-import maze.Cell;
 import maze.Maze;
+import maze.MazeRandom;
 
-import java.util.*;
+import java.util.Arrays;
 
-import static maze.Maze.HEX;
+import static maze.Maze.NUM_DIR;
 
 /**
  * The Class ModifiedPrimsGenerator: This generator is based on Prim’s algorithm
@@ -26,18 +26,62 @@ import static maze.Maze.HEX;
  */
 public class ModifiedPrimsGenerator implements MazeGenerator {
 
-	/** The cell set. */
-	private List<Cell> cellSet;
+	/** The maze reference. */
+	private Maze maze;
 
-	/** The cell set new. */
-	private List<Cell> cellSetNew;
+	/** The rand, seeded so that a maze can be generated again. */
+	private MazeRandom rand;
 
-	/** The dir_arr. */
-	// Random direction
-	private Integer[] dir_arr = { 0, 1, 2, 3, 4, 5 };
+	/** The listener, GenerationListener.NONE if none. */
+	private GenerationListener listener = GenerationListener.NONE;
 
-	/** The rand_dir. */
-	private List<Integer> rand_dir = Arrays.asList(dir_arr);
+	/** The cell set Z, true if the cell is in Z. */
+	private boolean inTree[];
+
+	/** The frontier set F, of cell indices in frontier[0] to frontier[frontierSize - 1]. */
+	private int frontier[];
+
+	/** The size of the frontier set. */
+	private int frontierSize;
+
+	/** The position of each cell in frontier[], -1 if not in the frontier set. */
+	private int position[];
+
+	/**
+	 * Instantiates a new generator with a random seed.
+	 */
+	public ModifiedPrimsGenerator() {
+		rand = new MazeRandom();
+	}
+
+	/**
+	 * Instantiates a new generator.
+	 *
+	 * @param seed the seed of the random choices
+	 */
+	public ModifiedPrimsGenerator(long seed) {
+		rand = new MazeRandom(seed);
+	}
+
+	/**
+	 * Sets the random numbers, e.g. a stream of a shared seed.
+	 *
+	 * @param rand the random numbers
+	 */
+	@Override
+	public void setRandom(MazeRandom rand) {
+		this.rand = rand;
+	}
+
+	/**
+	 * Sets the listener of the progress.
+	 *
+	 * @param listener the listener, null for none
+	 */
+	@Override
+	public void setListener(GenerationListener listener) {
+		this.listener = listener == null ? GenerationListener.NONE : listener;
+	}
 
 	/**
 	 * Generate maze.
@@ -47,52 +91,103 @@ public class ModifiedPrimsGenerator implements MazeGenerator {
 	 */
 	@Override
 	public void generateMaze(Maze maze) {
-		cellSet = new ArrayList<>();
-		cellSetNew = new ArrayList<>();
-
-		for (int i = 0; i < maze.sizeR; i ++) {
-			int initC = 0, sizeC = maze.sizeC;
-			if(maze.type == HEX) {
-				initC = (i + 1) / 2;
-				sizeC = sizeC + (i + 1) / 2;
-			}
-			for (int j = initC; j < sizeC; j ++) {
-				Cell current = maze.map[i][j];
-				cellSet.add(current);
+		this.maze = maze;
+		int numCells = maze.numCells();
+		inTree = new boolean[numCells];
+		frontier = new int[numCells];
+		frontierSize = 0;
+		position = new int[numCells];
+		Arrays.fill(position, -1);
+
+		listener.phaseStart("carve");
+		long carved = 0;
+		// Initial a random cell in cell set Z
+		addToTree(rand.nextInt(numCells));
+
+		while (frontierSize != 0) {
+			// Pick a random cell in the frontier set and remove it
+			int cell = frontier[rand.nextInt(frontierSize)];
+			removeFromFrontier(cell);
+
+			// Pick a random neighbor of it in Z, and carve the wall in between
+			int dir = -1;
+			int count = 0;
+			for (int k = 0; k < NUM_DIR; k ++) {
+				int ne = maze.neighbour(cell, k);
+				if (ne >= 0 && inTree[ne] && rand.nextInt(++ count) == 0)
+					dir = k;
 			}
+			maze.setWallPresent(cell, dir, false);
+			listener.carve(cell, dir);
+
+			addToTree(cell);
+			if (++ carved % GenerationListener.COUNTER_PERIOD == 0)
+				reportCounters(carved);
+		}
+		reportCounters(carved);
+		listener.phaseEnd("carve");
+	} // end of generateMaze()
+
+	/**
+	 * Report the counters to the listener.
+	 *
+	 * @param carved
+	 *            the number of walls carved
+	 */
+	private void reportCounters(long carved) {
+		listener.counter("carved", carved);
+		listener.counter("frontier", frontierSize);
+	}
+
+	/**
+	 * Add a cell to Z, together with the other end of its tunnel,
+	 * and put their neighbors not yet in Z into the frontier set.
+	 *
+	 * @param cell
+	 *            the cell
+	 */
+	private void addToTree(int cell) {
+		int end = maze.tunnel(cell);
+		inTree[cell] = true;
+		if (end >= 0) {
+			// Reached through the tunnel, so no wall to carve
+			inTree[end] = true;
+			removeFromFrontier(end);
+			addNeighborsToFrontier(end);
 		}
-		Collections.shuffle(cellSet);
-		// Initial a cell in new cell set
-		Cell randCell = cellSet.remove(0);
-		cellSetNew.add(randCell);
-
-		do {
-
-			Collections.shuffle(cellSetNew);
-			// Pick a random cell in new cell set
-			boolean found = false;
-			// Indicator for finding a neighbor not in original cell set
-			for(Cell temp: cellSetNew) {
-				// Shuffle direction array
-				Collections.shuffle(rand_dir);
-				// Go through random order neighbors of a random cell picked in new cell set
-				for(int dir: rand_dir) {
-					Cell ne = temp.neigh[dir];
-					// If this neighbor can be found in cellset
-					if(cellSet.contains(ne)) {
-						// remove it from cellSet then add it to new cell set
-						cellSet.remove(ne);
-						cellSetNew.add(ne);
-						temp.wall[dir].present = false;
-						found = true;
-						break;
-					}
-				}
-				//
-				if(found)
-					break;
+		addNeighborsToFrontier(cell);
+	}
+
+	/**
+	 * Put the neighbors of a cell that are in neither Z nor F into F.
+	 *
+	 * @param cell
+	 *            the cell
+	 */
+	private void addNeighborsToFrontier(int cell) {
+		for (int k = 0; k < NUM_DIR; k ++) {
+			int ne = maze.neighbour(cell, k);
+			if (ne >= 0 && !inTree[ne] && position[ne] < 0) {
+				position[ne] = frontierSize;
+				frontier[frontierSize ++] = ne;
 			}
+		}
+	}
 
-		} while(cellSet.size() != 0);
-	} // end of generateMaze()
+	/**
+	 * Remove a cell from the frontier set, if it is in it, by moving the
+	 * last cell of frontier[] into its place.
+	 *
+	 * @param cell
+	 *            the cell
+	 */
+	private void removeFromFrontier(int cell) {
+		int at = position[cell];
+		if (at < 0)
+			return;
+		int last = frontier[-- frontierSize];
+		frontier[at] = last;
+		position[last] = at;
+		position[cell] = -1;
+	}
 } // end of class ModifiedPrimsGenerator
@@ -3,13 +3,12 @@
  */
 package mazeGenerator;
 
-import maze.Cell;
-import maze.HexMaze;
 import maze.Maze;
+import maze.MazeRandom;
 
-import java.util.*;
+import java.util.Arrays;
 
-import static maze.Maze.*;
+import static maze.Maze.NUM_DIR;
 
 /**
  * The Class RecursiveBacktrackerGenerator. This generator uses the DFS
@@ -27,19 +26,57 @@ import static maze.Maze.*;
 
 public class RecursiveBacktrackerGenerator implements MazeGenerator {
 
+	/** The initial capacity of the stack. */
+	private static final int INIT_STACK_SIZE = 1024;
+
 	/** The maze refernece. */
 	private Maze maze;
 
-	/** The rand. */
-	private Random rand = new Random();
+	/** The rand, seeded so that a maze can be generated again. */
+	private MazeRandom rand;
+
+	/** The listener, GenerationListener.NONE if none. */
+	private GenerationListener listener = GenerationListener.NONE;
 
-	/** The visited 2d array to record which cell is visited */
-	private boolean visited[][];
+	/** The visited bits to record which cell is visited, indexed by cell index */
+	private long visited[];
 
-	/** The a direction array for randomly get a neighbor from direction 0 - 5. */
-	// Random direction
-	private Integer[] dir_arr = { 0, 1, 2, 3, 4, 5 };
-	private List<Integer> rand_dir = Arrays.asList(dir_arr);
+	/**
+	 * Instantiates a new generator with a random seed.
+	 */
+	public RecursiveBacktrackerGenerator() {
+		rand = new MazeRandom();
+	}
+
+	/**
+	 * Instantiates a new generator.
+	 *
+	 * @param seed
+	 *            the seed of the random choices
+	 */
+	public RecursiveBacktrackerGenerator(long seed) {
+		rand = new MazeRandom(seed);
+	}
+
+	/**
+	 * Sets the random numbers, e.g. a stream of a shared seed.
+	 *
+	 * @param rand the random numbers
+	 */
+	@Override
+	public void setRandom(MazeRandom rand) {
+		this.rand = rand;
+	}
+
+	/**
+	 * Sets the listener of the progress.
+	 *
+	 * @param listener the listener, null for none
+	 */
+	@Override
+	public void setListener(GenerationListener listener) {
+		this.listener = listener == null ? GenerationListener.NONE : listener;
+	}
 
 	/**
 	 * Generate maze.
@@ -50,167 +87,120 @@ public class RecursiveBacktrackerGenerator implements MazeGenerator {
 	@Override
 	public void generateMaze(Maze maze) {
 		this.maze = maze;
-		// initialize visited 2d array
-		visited = new boolean[maze.sizeR][maze.sizeC];
-		for (boolean[] r : visited) {
-			for (boolean c : r) {
-				c = false;
-			}
-		}
+		// initialize visited bits
+		visited = new long[(maze.numCells() + 63) >>> 6];
 
 		// Get a random cell to start generating maze
-		int rr = 0;
-		int rc = 0;
-		while (!isIn(rr, rc)) {
-			rr = rand.nextInt(maze.sizeR);
-			if (maze.type == HEX)
-				rc = rand.nextInt(maze.sizeC + (maze.sizeR + 1) / 2);
-			else
-				rc = rand.nextInt(maze.sizeC);
-		}
-
-		Cell randCell = maze.map[rr][rc];
-		// Call carvePassage recursively to generate a maze
+		int randCell = rand.nextInt(maze.numCells());
+		listener.phaseStart("carve");
 		carvePassage(randCell);
+		listener.phaseEnd("carve");
 
 	} // end of generateMaze()
 
 	/**
-	 * Carve passage. Recursive function for walkthrough unvisited cells and
-	 * carve the wall randomly to generate a perfect maze. 1. Set the initial
-	 * cell to visited 2. Set current cell as visited and make the reference
-	 * point to the cell it tunnels to. 3. Randomly get a neighbor and keep
-	 * carving walls until hit the dead end 4. Return to a cell still has
-	 * unvisited neighbor to continue carving through passage. 5. Finish until
-	 * there is no where to keep doing carving walls
+	 * Carve passage. Walk through unvisited cells and carve the wall randomly
+	 * to generate a perfect maze, keeping the path back on an explicit stack
+	 * rather than recursing, so the size of the maze is not bounded by the
+	 * thread stack. 1. Set the initial cell to visited 2. Set current cell as
+	 * visited and make the reference point to the cell it tunnels to.
+	 * 3. Randomly get a neighbor and keep carving walls until hit the dead end
+	 * 4. Return to a cell still has unvisited neighbor to continue carving
+	 * through passage. 5. Finish until there is no where to keep doing
+	 * carving walls
+	 *
+	 * @param start
+	 *            the cell to start from
+	 */
+	private void carvePassage(int start) {
+		int stack[] = new int[Math.min(INIT_STACK_SIZE, maze.numCells())];
+		int top = 0;
+		long carved = 0;
+		stack[top ++] = enter(start);
+
+		while (top > 0) {
+			int cell = stack[top - 1];
+			int dir = randomlyChoseNeighbor(cell);
+			if (dir == -1) {
+				// Dead end, backtrack one cell
+				top --;
+				listener.backtrack(cell, top);
+				continue;
+			}
+			int neigh = maze.neighbour(cell, dir);
+			maze.setWallPresent(cell, dir, false);
+			listener.carve(cell, dir);
+			if (top == stack.length)
+				stack = Arrays.copyOf(stack, Math.min(2 * top, maze.numCells()));
+			stack[top ++] = enter(neigh);
+			if (++ carved % GenerationListener.COUNTER_PERIOD == 0) {
+				listener.counter("carved", carved);
+				listener.counter("depth", top);
+			}
+		}
+		listener.counter("carved", carved);
+		listener.counter("depth", top);
+	}
+
+	/**
+	 * Enter a cell: set it visited and, if it is a tunnel end, move through
+	 * the tunnel and set the other end visited as well.
 	 *
 	 * @param cell
 	 *            the cell
+	 * @return the cell to carve from
 	 */
-	private void carvePassage(Cell cell) {
-
+	private int enter(int cell) {
 		setCellVisited(cell);
-		if (cell.tunnelTo != null) {
-			cell = cell.tunnelTo;
+		int end = maze.tunnel(cell);
+		if (end >= 0) {
+			cell = end;
 			setCellVisited(cell);
 		}
-		int dir = randomlyChoseNeighbor(cell);
-		Cell neigh;
-		while (dir != -1) {
-			neigh = cell.neigh[dir];
-			cell.wall[dir].present = false;
-			carvePassage(neigh);
-			dir = randomlyChoseNeighbor(cell);
-
-		}
+		return cell;
 	}
 
 	/**
-	 * Randomly chose a neighbor of a cell.
+	 * Randomly chose a neighbor of a cell. Each unvisited neighbor is kept
+	 * with probability 1/n when it is the n-th one found, so every one of
+	 * them is equally likely without collecting them first.
 	 *
 	 * @param cell
 	 *            the cell
-	 * @return the direction of its neighbor.
+	 * @return the direction of its neighbor, -1 if all are visited.
 	 */
-	private int randomlyChoseNeighbor(Cell cell) {
-
-		//if(!isIn(cell)) return -1;
-
-		List<Integer> neighsDir = new ArrayList<>();
-		Collections.shuffle(rand_dir);
-		// Go through random order neighbors of a random cell picked in new cell set
-		for(int dir: rand_dir) {
-			Cell ne = cell.neigh[dir];
-			if(ne != null && !isCellVisited(ne)) {
-				neighsDir.add(dir);
+	private int randomlyChoseNeighbor(int cell) {
+		int neighDir = -1;
+		int count = 0;
+		for (int dir = 0; dir < NUM_DIR; dir++) {
+			int ne = maze.neighbour(cell, dir);
+			if(ne >= 0 && !isCellVisited(ne) && rand.nextInt(++ count) == 0) {
+				neighDir = dir;
 			}
 		}
-		int neighDir = -1;
-		if(neighsDir.size() > 0)
-			neighDir = neighsDir.get(rand.nextInt(neighsDir.size()));
 
 		return neighDir;
 	}
 
-	/**
-	 * Checks if coordinates is in the maze
-	 *
-	 * @param r
-	 *            the row index
-	 * @param c
-	 *            the column index
-	 * @return true, if is in
-	 */
-	protected boolean isIn(int r, int c) {
-		boolean result = r >= 0 && r < maze.sizeR && c >= 0 && c < maze.sizeC;
-		if (maze.type == HEX)
-			result = r >= 0 && r < maze.sizeR && c >= (r + 1) / 2
-					&& c < maze.sizeC + (r + 1) / 2;
-
-		return result;
-	} // end of isIn()
-
-	/**
-	 * Check whether the cell is in the maze.
-	 * 
-	 * @param cell
-	 *            The cell being checked.
-	 * @return True if in the maze. Otherwise false.
-	 */
-	protected boolean isIn(Cell cell) {
-		if (cell == null)
-			return false;
-		return isIn(cell.r, cell.c);
-	} // end of isIn()
-
 	/**
 	 * Checks if is cell visited.
 	 *
 	 * @param cell
-	 *            the cell
+	 *            the index of the cell
 	 * @return true, if is cell visited
 	 */
-	private boolean isCellVisited(Cell cell) {
-		boolean result;
-		// Return true to skip it if cell is null
-		if (!isIn(cell))
-			return true;
-
-		int r = cell.r;
-		int c = cell.c;
-		if (maze.type == HEX) {
-			c = c - (r + 1) / 2;
-		}
-		try {
-			result = visited[r][c];
-		} catch (Exception e) {
-			result = true;
-		}
-
-		return result;
+	private boolean isCellVisited(int cell) {
+		return (visited[cell >>> 6] & (1L << cell)) != 0;
 	}
 
 	/**
 	 * Sets the cell visited.
 	 *
 	 * @param cell
-	 *            the new cell visited
+	 *            the index of the new cell visited
 	 */
-	private void setCellVisited(Cell cell) {
-
-		if (!isIn(cell))
-			return;
-
-		int r = cell.r;
-		int c = cell.c;
-		if (maze.type == HEX) {
-			c = c - (r + 1) / 2;
-		}
-		try {
-			visited[r][c] = true;
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+	private void setCellVisited(int cell) {
+		visited[cell >>> 6] |= 1L << cell;
 	}
 
 } // end of class RecursiveBacktrackerGenerator
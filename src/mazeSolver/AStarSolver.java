@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.util.Arrays;
+
+import static maze.Maze.NUM_DIR;
+
+/**
+ * Implements A* maze solving algorithm. Cells are expanded in order of the
+ * distance walked from the entrance plus an estimate of the distance left to
+ * the exit, so the search heads for the exit instead of exploring blindly.
+ * The estimate never exceeds the true distance and is consistent, hence the
+ * first time the exit is expanded its path is a shortest one.
+ *
+ * The estimate is the distance with no walls at all: Manhattan distance for
+ * square cells, and hex distance for hexagon cells, whose map columns already
+ * include the (r+1)/2 offset and so are axial coordinates. With tunnels it
+ * is the shortest of walking straight to the exit and walking to any tunnel
+ * end, through the tunnel and on.
+ */
+public class AStarSolver implements MazeSolver {
+
+	/** The maze. */
+	private Maze maze;
+
+	/** True for hexagon cells. */
+	private boolean isHex;
+
+	/** The position of the exit. */
+	private int exitR, exitC;
+
+	/** The positions of the tunnel ends worth going through. */
+	private int endR[], endC[];
+
+	/** The estimated distance from each tunnel end in endR[], endC[] to the exit. */
+	private int endDist[];
+
+	/** The distance walked from the entrance to each cell, -1 if not reached. */
+	private int g[];
+
+	/** The closed cells, whose distances in g[] are final. */
+	private long closed[];
+
+	/** The neighbors of a cell, filled by Maze.openNeighbours(). */
+	private int neighs[] = new int[NUM_DIR + 1];
+
+	/** The solved flag. */
+	private boolean solved = false;
+
+	/** The step_counter. */
+	private int step_counter = 0;
+
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+
+	/**
+	 * Solve maze.
+	 *
+	 * @param maze the maze
+	 */
+	@Override
+	public void solveMaze(Maze maze) {
+		this.maze = maze;
+		solved = false;
+		step_counter = 0;
+		if (stats != null)
+			stats.begin();
+		int entrance = maze.index(maze.entrance);
+		int exit = maze.index(maze.exit);
+		initHeuristic(exit);
+		g = new int[maze.numCells()];
+		Arrays.fill(g, -1);
+		closed = new long[(maze.numCells() + 63) >>> 6];
+
+		// the open cells keyed by estimated length << 32 | index,
+		// a cell is added again when its distance drops and the stale key is skipped
+		LongHeap open = new LongHeap(1024);
+		g[entrance] = 0;
+		open.add(key(estimate(entrance), entrance));
+		while (!open.isEmpty()) {
+			int cell = (int) open.poll();
+			if (isClosed(cell))
+				continue;
+			closed[cell >>> 6] |= 1L << cell;
+			step_counter ++;
+			maze.drawFtPrt(cell);
+			if (cell == exit) {
+				solved = true;
+				break;
+			}
+			int num = maze.openNeighbours(cell, neighs);
+			for (int i = 0; i < num; i ++) {
+				int ne = neighs[i];
+				if (!isClosed(ne) && (g[ne] < 0 || g[cell] + 1 < g[ne])) {
+					g[ne] = g[cell] + 1;
+					open.add(key(g[ne] + estimate(ne), ne));
+				}
+			}
+			if (stats != null)
+				stats.frontier(open.size());
+		}
+		if (stats != null)
+			stats.end(maze, step_counter, getPath());
+	} // end of solveMaze()
+
+	/**
+	 * Use after solveMaze(maze), the shortest path found.
+	 *
+	 * @return the indices of the cells from entrance to exit, null if not solved
+	 */
+	public int[] getPath() {
+		if (!solved)
+			return null;
+		int cell = maze.index(maze.exit);
+		int path[] = new int[g[cell] + 1];
+		for (int i = g[cell]; i >= 0; i --) {
+			path[i] = cell;
+			int num = maze.openNeighbours(cell, neighs);
+			for (int j = 0; j < num; j ++) {
+				if (isClosed(neighs[j]) && g[neighs[j]] == i - 1) {
+					cell = neighs[j];
+					break;
+				}
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Checks if is solved.
+	 *
+	 * @return true, if is solved
+	 */
+	@Override
+	public boolean isSolved() {
+		return solved;
+	} // end of isSolved()
+
+	/**
+	 * Cells explored.
+	 *
+	 * @return the count of cells expanded
+	 */
+	@Override
+	public int cellsExplored() {
+		return step_counter;
+	} // end of cellsExplored()
+
+	/**
+	 * Set up the estimate for a exit. The estimated distance from each tunnel
+	 * end to the exit is the shortest path over the tunnel ends, with the
+	 * distance with no walls between any two of them and 1 through a tunnel.
+	 *
+	 * @param exit the index of the exit
+	 */
+	private void initHeuristic(int exit) {
+		isHex = maze.type == Maze.HEX;
+		exitR = maze.row(exit);
+		exitC = maze.col(exit);
+
+		int ends[] = maze.tunnelEnds();
+		int m = ends.length;
+		int r[] = new int[m];
+		int c[] = new int[m];
+		int dist[] = new int[m];
+		boolean done[] = new boolean[m];
+		for (int i = 0; i < m; i ++) {
+			r[i] = maze.row(ends[i]);
+			c[i] = maze.col(ends[i]);
+			dist[i] = distance(r[i], c[i], exitR, exitC);
+		}
+		// Dijkstra on the tunnel ends, there are only a few of them
+		for (int k = 0; k < m; k ++) {
+			int j = -1;
+			for (int i = 0; i < m; i ++) {
+				if (!done[i] && (j < 0 || dist[i] < dist[j]))
+					j = i;
+			}
+			done[j] = true;
+			for (int i = 0; i < m; i ++) {
+				int step = i == (j ^ 1) ? 1 : distance(r[i], c[i], r[j], c[j]);
+				if (!done[i])
+					dist[i] = Math.min(dist[i], dist[j] + step);
+			}
+		}
+
+		// only the ends with a shortcut can lower the estimate
+		int n = 0;
+		endR = new int[m];
+		endC = new int[m];
+		endDist = new int[m];
+		for (int i = 0; i < m; i ++) {
+			if (dist[i] < distance(r[i], c[i], exitR, exitC)) {
+				endR[n] = r[i];
+				endC[n] = c[i];
+				endDist[n ++] = dist[i];
+			}
+		}
+		endR = Arrays.copyOf(endR, n);
+		endC = Arrays.copyOf(endC, n);
+		endDist = Arrays.copyOf(endDist, n);
+	}
+
+	/**
+	 * The estimated distance from a cell to the exit.
+	 *
+	 * @param cell the index of the cell
+	 * @return the estimate
+	 */
+	private int estimate(int cell) {
+		int r = maze.row(cell);
+		int c = maze.col(cell);
+		int best = distance(r, c, exitR, exitC);
+		for (int i = 0; i < endDist.length; i ++)
+			best = Math.min(best, distance(r, c, endR[i], endC[i]) + endDist[i]);
+		return best;
+	}
+
+	/**
+	 * The distance between two cells with no walls.
+	 *
+	 * @param r1 the row of a cell
+	 * @param c1 the map column of a cell
+	 * @param r2 the row of the other cell
+	 * @param c2 the map column of the other cell
+	 * @return the distance
+	 */
+	private int distance(int r1, int c1, int r2, int c2) {
+		int dr = r2 - r1;
+		int dc = c2 - c1;
+		// hexagon moves are (0, 1), (1, 1), (1, 0) and their opposites
+		if (isHex)
+			return (Math.abs(dr) + Math.abs(dc) + Math.abs(dr - dc)) / 2;
+		return Math.abs(dr) + Math.abs(dc);
+	}
+
+	/**
+	 * The heap key of a cell.
+	 *
+	 * @param f the estimated length of the path through the cell
+	 * @param cell the index of the cell
+	 * @return the key
+	 */
+	private static long key(int f, int cell) {
+		return (long) f << 32 | cell;
+	}
+
+	/**
+	 * Checks if a cell is closed.
+	 *
+	 * @param cell the index of the cell
+	 * @return true, if is closed
+	 */
+	private boolean isClosed(int cell) {
+		return (closed[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+} // end of class AStarSolver
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static maze.Maze.NUM_DIR;
+
+/**
+ * Solves many (start, goal) queries against one maze in parallel on a
+ * ForkJoinPool. The maze is only read, so the queries share it, and each
+ * task borrows scratch arrays for the BFS of its queries, which end up one
+ * set per worker thread. The arrays are kept by the solver for the next
+ * batch, as long as the mazes have the same number of cells.
+ * The arrays are stamped with a query number instead of being cleared, so a
+ * query only costs the cells its BFS visits. Footprints are not drawn, as
+ * drawing is not thread-safe.
+ *
+ * The maze must not change while solve() runs. For a perfect maze queried
+ * many times, a PathIndex answers each query without a search.
+ */
+public class BatchSolver {
+
+	/** The number of queries per task. */
+	private static final int CHUNK = 16;
+
+	/** The pool to run on. */
+	private final ForkJoinPool pool;
+
+	/** The scratch arrays left by the batches so far, and the number of cells they are for. */
+	private Queue<Scratch> scratch = new ConcurrentLinkedQueue<>();
+	private int scratchCells = -1;
+
+	/**
+	 * The results of a batch.
+	 */
+	public static class Result {
+
+		/** The number of steps from start to goal of each query, -1 if the goal is not reachable. */
+		public final int lengths[];
+
+		/** The indices of the cells from start to goal of each query, null if not reachable or not asked for. */
+		public final int paths[][];
+
+		Result(int lengths[], int paths[][]) {
+			this.lengths = lengths;
+			this.paths = paths;
+		}
+	}
+
+	/**
+	 * Instantiates a new solver on the common pool.
+	 */
+	public BatchSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Instantiates a new solver.
+	 *
+	 * @param pool the pool to run on
+	 */
+	public BatchSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Solve a batch of queries.
+	 *
+	 * @param maze the maze
+	 * @param pairs the cell indices start0, goal0, start1, goal1, ...
+	 * @param withPaths true to return the paths, otherwise only their lengths
+	 * @return the results, in the order of the queries
+	 * @throws IllegalArgumentException if pairs[] is of odd length or holds a cell index out of the maze
+	 */
+	public Result solve(Maze maze, int pairs[], boolean withPaths) {
+		if (pairs.length % 2 != 0)
+			throw new IllegalArgumentException("Queries must come in (start, goal) pairs.");
+		int numCells = maze.numCells();
+		for (int i = 0; i < pairs.length; i ++) {
+			if (pairs[i] < 0 || pairs[i] >= numCells)
+				throw new IllegalArgumentException("Query " + i / 2 + " has cell index " + pairs[i]
+						+ " out of 0.." + (numCells - 1) + ".");
+		}
+		int num = pairs.length / 2;
+		Result result = new Result(new int[num], withPaths ? new int[num][] : null);
+		pool.invoke(new Queries(maze, pairs, result, scratch(numCells), 0, (int) (((long) num + CHUNK - 1) / CHUNK)));
+		return result;
+	}
+
+	/**
+	 * The scratch arrays for a maze, those of the previous batches if for as many cells.
+	 *
+	 * @param numCells the number of cells of the maze
+	 * @return the queue of scratch arrays
+	 */
+	private synchronized Queue<Scratch> scratch(int numCells) {
+		if (numCells != scratchCells) {
+			scratch = new ConcurrentLinkedQueue<>();
+			scratchCells = numCells;
+		}
+		return scratch;
+	}
+
+	/**
+	 * Arrays for the BFS, indexed by cell index, used by one task at a time.
+	 */
+	private static class Scratch {
+
+		/** The number of the current query of the owner. */
+		private int stamp = 0;
+
+		/** The number of the query that last visited each cell. */
+		private final int mark[];
+
+		/** The cell each cell was visited from. */
+		private final int parent[];
+
+		/** The BFS queue, a cell is queued at most once. */
+		private final int queue[];
+
+		/** The neighbors of a cell. */
+		private final int neighs[] = new int[NUM_DIR + 1];
+
+		Scratch(int numCells) {
+			mark = new int[numCells];
+			parent = new int[numCells];
+			queue = new int[numCells];
+		}
+
+		/**
+		 * BFS from start until goal is reached.
+		 *
+		 * @param maze the maze
+		 * @param start the index of the start cell
+		 * @param goal the index of the goal cell
+		 * @return true, if goal is reached
+		 */
+		boolean search(Maze maze, int start, int goal) {
+			if (++ stamp == 0) {
+				Arrays.fill(mark, 0);
+				stamp = 1;
+			}
+			int head = 0, tail = 0;
+			mark[start] = stamp;
+			queue[tail ++] = start;
+			while (head < tail) {
+				int cell = queue[head ++];
+				if (cell == goal)
+					return true;
+				int num = maze.openNeighbours(cell, neighs);
+				for (int i = 0; i < num; i ++) {
+					int ne = neighs[i];
+					if (mark[ne] != stamp) {
+						mark[ne] = stamp;
+						parent[ne] = cell;
+						queue[tail ++] = ne;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The chunks of queries from, from + 1, ..., to - 1, split in halves
+	 * until there is a single one.
+	 */
+	private static class Queries extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Maze maze;
+		private final int pairs[];
+		private final Result result;
+		private final Queue<Scratch> scratch;
+
+		/** The range of chunks. */
+		private final int from, to;
+
+		Queries(Maze maze, int pairs[], Result result, Queue<Scratch> scratch, int from, int to) {
+			this.maze = maze;
+			this.pairs = pairs;
+			this.result = result;
+			this.scratch = scratch;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Queries(maze, pairs, result, scratch, from, mid),
+						new Queries(maze, pairs, result, scratch, mid, to));
+				return;
+			}
+
+			Scratch s = scratch.poll();
+			if (s == null)
+				s = new Scratch(maze.numCells());
+			int end = (int) Math.min(result.lengths.length, (from + 1L) * CHUNK);
+			for (int q = from * CHUNK; q < end; q ++) {
+				int start = pairs[2 * q];
+				int goal = pairs[2 * q + 1];
+				if (!s.search(maze, start, goal)) {
+					result.lengths[q] = -1;
+					continue;
+				}
+				int length = 0;
+				for (int cell = goal; cell != start; cell = s.parent[cell])
+					length ++;
+				result.lengths[q] = length;
+				if (result.paths != null) {
+					int path[] = new int[length + 1];
+					for (int i = length, cell = goal; i >= 0; i --, cell = s.parent[cell])
+						path[i] = cell;
+					result.paths[q] = path;
+				}
+			}
+			scratch.add(s);
+		}
+	}
+}
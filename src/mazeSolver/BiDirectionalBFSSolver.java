@@ -3,12 +3,10 @@
  */
 package mazeSolver;
 
-import maze.Cell;
 import maze.Maze;
 
-import java.util.ArrayList;
+import java.io.PrintStream;
 
-import static maze.Maze.HEX;
 import static maze.Maze.NUM_DIR;
 
 /**
@@ -30,11 +28,14 @@ public class BiDirectionalBFSSolver implements MazeSolver {
 	/** The maze. */
 	private Maze maze;
 	
-	/** The visited table of BFS from entrance. */
-	private boolean hVisited[][];
+	/** The owner of each cell, indexed by cell index: 0 if not visited, otherwise the side + 1. */
+	private byte owner[];
 	
-	/** The visited table of BFS from exit. */
-	private boolean tVisited[][];
+	/** The distance of each visited cell from the entrance or exit, whichever side owns it. */
+	private int dist[];
+	
+	/** The neighbors of a cell, filled by Maze.openNeighbours(). */
+	private int neighs[] = new int[NUM_DIR + 1];
 	
 	/** The solved flag. */
 	private boolean solved = false;
@@ -42,151 +43,166 @@ public class BiDirectionalBFSSolver implements MazeSolver {
 	/** The step_counter. */
 	private int step_counter = 0;
 
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+
+	/** The path from entrance to exit, null if not solved. */
+	private int path[] = null;
+
+	/** The stream to trace visited cells to, null if not tracing. */
+	private PrintStream trace = null;
+
 	/**
-	 * Solve maze.
+	 * Solve maze. The two searches expand a whole BFS level at a time, always
+	 * on the side with the smaller frontier. Each cell is owned by the side
+	 * that visited it first, so the fronts meet when a side reaches a cell
+	 * owned by the other one; the rest of that level is still expanded to
+	 * pick the shortest of the meeting edges found.
 	 *
 	 * @param maze the maze
 	 */
 	@Override
 	public void solveMaze(Maze maze) {
 		this.maze = maze;
-		// headSet: temp array to store unvisited 
-		// neighbors of current cell
-		ArrayList<Cell> headSet = new ArrayList<>();
-		// tailSet: temp array to store unvisited 
-		// neighbors of current cell
-		ArrayList<Cell> tailSet = new ArrayList<>();
-		// uHead: arraylist to store cells which is visited 
-		// by BFS from entrance
-		ArrayList<Cell> uHead = new ArrayList<>();
-		// uTail: arraylist to store cells which is visited 
-		// by BFS from entrance
-		ArrayList<Cell> uTail = new ArrayList<>();
-
-		Cell ch = null;
-		Cell ct = null;
-		// Initialize visited[][]
-		hVisited = new boolean[maze.sizeR][maze.sizeC];
-		tVisited = new boolean[maze.sizeR][maze.sizeC];
-		for(int i=0; i< maze.sizeR; i++) {
-			for(int j=0 ; j<maze.sizeC; j++) {
-				hVisited[i][j] = false;
-				tVisited[i][j] = false;
-			}
+		solved = false;
+		step_counter = 0;
+		path = null;
+		if (stats != null)
+			stats.begin();
+		owner = new byte[maze.numCells()];
+		dist = new int[maze.numCells()];
+
+		// headQueue, tailQueue: the frontiers of BFS from entrance and exit
+		IntQueue headQueue = new IntQueue(1024);
+		IntQueue tailQueue = new IntQueue(1024);
+		int entrance = maze.index(maze.entrance);
+		int exit = maze.index(maze.exit);
+
+		setCellVisited(entrance, HEAD, 0);
+		headQueue.add(entrance);
+		if (entrance == exit) {
+			solved = true;
+			path = new int[] { entrance };
+			if (stats != null)
+				stats.end(maze, step_counter, path);
+			return;
 		}
-
-		headSet.add(maze.entrance);
-		tailSet.add(maze.exit);
+		setCellVisited(exit, TAIL, 0);
+		tailQueue.add(exit);
 		
-		// Perform BFS from entrance and exit stage by stage
-		while(headSet.size()!=0 && tailSet.size()!=0) {
-			// Starts BFS from entrance
-			if(headSet.size()!=0) {
-				ch = headSet.remove(0);
-				uHead.add(ch);
-				if(ch == ct || uTail.contains(ch)) {
-					solved = true;
-					break;
-				}
-				setCellVisited(ch, HEAD);
-				// Put its neighbors into temp array for next round
-				for(int i=0; i<NUM_DIR; i++) {
-					if(ch.wall[i] == null) continue;
-					if(ch.wall[i].present) continue;
-					Cell ne = ch.neigh[i];
-					if(!isCellVisited(ne, HEAD)) {
-						if (ne.tunnelTo != null) {
-							// set ne point to the cell it tunnels to
-							// instead of real neighbor of current cell
-							setCellVisited(ne, HEAD);
-							ne = ne.tunnelTo;
-						}
-						headSet.add(ne);
-
-					}
-				}
+		// meet[HEAD] and meet[TAIL] are the two cells of the best meeting edge
+		int meet[] = { -1, -1 };
+		int best = Integer.MAX_VALUE;
+		while (meet[HEAD] < 0 && !headQueue.isEmpty() && !tailQueue.isEmpty()) {
+			int side = headQueue.size() <= tailQueue.size() ? HEAD : TAIL;
+			IntQueue queue = side == HEAD ? headQueue : tailQueue;
+			long start = 0;
+			if (stats != null) {
+				stats.frontier(headQueue.size() + tailQueue.size());
+				start = System.nanoTime();
 			}
-			// Starts BFS from exit
-			if(tailSet.size()!=0) {
-				ct = tailSet.remove(0);
-				uTail.add(ct);
-				if(ct == ch || uHead.contains(ct)) {
-					solved = true;
-					break;
-				}
-				setCellVisited(ct, TAIL);
-				// Put its neighbors into temp array for next round
-				for(int i=0; i<NUM_DIR; i++) {
-					if(ch.wall[i] == null) continue;
-					if(ct.wall[i].present) continue;
-					Cell ne = ct.neigh[i];
-					if(!isCellVisited(ne, TAIL)) {
-						// set ne point to the cell it tunnels to
-						// instead of real neighbor of current cell
-						if (ne.tunnelTo != null) {
-							setCellVisited(ne, TAIL);
-							ne = ne.tunnelTo;
-						}
-						tailSet.add(ne);
+			for (int level = queue.size(); level > 0; level --) {
+				int cell = queue.poll();
+				int num = maze.openNeighbours(cell, neighs);
+				for (int i = 0; i < num; i ++) {
+					int ne = neighs[i];
+					if (owner[ne] == 0) {
+						setCellVisited(ne, side, dist[cell] + 1);
+						queue.add(ne);
+					}
+					else if (owner[ne] != side + 1 && dist[cell] + 1 + dist[ne] < best) {
+						// The fronts meet between cell and ne
+						best = dist[cell] + 1 + dist[ne];
+						meet[side] = cell;
+						meet[1 - side] = ne;
 					}
 				}
 			}
+			if (stats != null)
+				stats.addPhase(side == HEAD ? "head" : "tail", System.nanoTime() - start);
+		}
+
+		long start = stats == null ? 0 : System.nanoTime();
+		if (meet[HEAD] >= 0) {
+			solved = true;
+			path = new int[best + 1];
+			// walk back from the meeting edge to the entrance and to the exit
+			for (int i = dist[meet[HEAD]], cell = meet[HEAD]; i >= 0; i --) {
+				path[i] = cell;
+				cell = parent(cell);
+			}
+			for (int i = best - dist[meet[TAIL]], cell = meet[TAIL]; i <= best; i ++) {
+				path[i] = cell;
+				cell = parent(cell);
+			}
+		}
+		if (stats != null) {
+			stats.addPhase("path", System.nanoTime() - start);
+			stats.end(maze, step_counter, path);
 		}
 	} // end of solveMaze()
 
 	/**
-	 * Checks if is cell visited.
+	 * The cell one step closer to the entrance or exit, on the same side.
 	 *
-	 * @param cell the cell
-	 * @param dir the dir
-	 * @return true, if is cell visited
+	 * @param cell the index of a visited cell
+	 * @return the index of its parent, -1 for the entrance and exit
 	 */
-	private boolean isCellVisited(Cell cell, int dir) {
-		boolean result;
-		// Return true to skip it if cell is null
-		if(cell == null) return true;
-
-		int r = cell.r;
-		int c = cell.c;
-		if(maze.type == HEX) {
-			c = c - (r + 1) / 2;
+	private int parent(int cell) {
+		if (dist[cell] == 0)
+			return -1;
+		int num = maze.openNeighbours(cell, neighs);
+		for (int i = 0; i < num; i ++) {
+			int ne = neighs[i];
+			if (owner[ne] == owner[cell] && dist[ne] == dist[cell] - 1)
+				return ne;
 		}
-		try {
-			if(dir == HEAD)
-				result = hVisited[r][c];
-			else
-				result = tVisited[r][c];
-		} catch (Exception e){
-			result = true;
-		}
-
-		return result;
+		return -1;
 	}
 
 	/**
 	 * Sets the cell visited.
 	 *
-	 * @param cell the cell
-	 * @param dir the dir
+	 * @param cell the index of the cell
+	 * @param side the side visiting it
+	 * @param d the distance from the entrance or exit
 	 */
-	private void setCellVisited(Cell cell, int dir) {
-		int r = cell.r;
-		int c = cell.c;
-		if(maze.type == HEX) {
-			c = c - (r + 1) / 2;
-		}
-		try {
-			// Set visited table according to whitch side if performing
-			if(dir == HEAD)
-				hVisited[r][c] = true;
-			else
-				tVisited[r][c] = true;
-			maze.drawFtPrt(cell);
-			System.out.println(dir+" "+r+" "+c);
-			step_counter ++;
-		} catch (Exception e){
-			e.printStackTrace();
-		}
+	private void setCellVisited(int cell, int side, int d) {
+		owner[cell] = (byte) (side + 1);
+		dist[cell] = d;
+		maze.drawFtPrt(cell);
+		if (trace != null)
+			trace.println(side+" "+maze.row(cell)+" "+cell % maze.sizeC);
+		step_counter ++;
+	}
+
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Trace every visited cell, as a line of the side (0 for entrance, 1 for
+	 * exit), the row and the column counted from the first cell of the row.
+	 *
+	 * @param trace the stream to trace to, null to stop tracing
+	 */
+	public void setTrace(PrintStream trace) {
+		this.trace = trace;
+	}
+
+	/**
+	 * Use after solveMaze(maze), the shortest path found.
+	 *
+	 * @return the indices of the cells from entrance to exit, null if not solved
+	 */
+	public int[] getPath() {
+		return path == null ? null : path.clone();
 	}
 
 
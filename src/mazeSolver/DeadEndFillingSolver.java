@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static maze.Maze.NUM_DIR;
+
+/**
+ * Implements parallel dead-end filling maze solving algorithm. A perfect maze
+ * is a tree, so removing dead ends until none is left, other than the entrance
+ * and exit, leaves exactly the path between them. The maze is cut into tiles
+ * of consecutive cells processed in parallel on a ForkJoinPool: first every
+ * tile counts the open sides of its cells, including tunnels, then it fills
+ * its dead ends. Filling a cell decrements the degree of its last neighbor
+ * atomically, and whichever task brings it down to 1 fills it next, even if
+ * it is in another tile.
+ */
+public class DeadEndFillingSolver implements MazeSolver {
+
+	/** The number of cells per tile. */
+	private static final int TILE = 1 << 16;
+
+	/** The pool to run on. */
+	private final ForkJoinPool pool;
+
+	/** The maze. */
+	private Maze maze;
+
+	/** The index of the entrance and exit, never filled. */
+	private int entrance, exit;
+
+	/** The number of open sides of each cell, 0 once it is filled. */
+	private AtomicIntegerArray degree;
+
+	/** The solved flag. */
+	private boolean solved = false;
+
+	/** The step_counter. */
+	private int step_counter = 0;
+
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+
+	/** The path from entrance to exit, null if not solved. */
+	private int path[] = null;
+
+	/**
+	 * Instantiates a new solver on the common pool.
+	 */
+	public DeadEndFillingSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Instantiates a new solver.
+	 *
+	 * @param pool the pool to run on
+	 */
+	public DeadEndFillingSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Solve maze. After filling, the cells left are followed from the entrance,
+	 * which only finds the exit if the maze is perfect.
+	 *
+	 * @param maze the maze
+	 */
+	@Override
+	public void solveMaze(Maze maze) {
+		this.maze = maze;
+		solved = false;
+		path = null;
+		if (stats != null)
+			stats.begin();
+		entrance = maze.index(maze.entrance);
+		exit = maze.index(maze.exit);
+		int tiles = (int) (((long) maze.numCells() + TILE - 1) / TILE);
+		degree = new AtomicIntegerArray(maze.numCells());
+		long start = stats == null ? 0 : System.nanoTime();
+		pool.invoke(new Pass(0, tiles, false));
+		if (stats != null) {
+			stats.addPhase("degree", System.nanoTime() - start);
+			start = System.nanoTime();
+		}
+		pool.invoke(new Pass(0, tiles, true));
+		if (stats != null) {
+			stats.addPhase("fill", System.nanoTime() - start);
+			start = System.nanoTime();
+		}
+		step_counter = maze.numCells();
+
+		// follow the cells left
+		int neighs[] = new int[NUM_DIR + 1];
+		int trail[] = new int[1024];
+		int length = 0;
+		int prev = -1;
+		int cell = entrance;
+		while (length < maze.numCells()) {
+			if (length == trail.length)
+				trail = Arrays.copyOf(trail, 2 * length);
+			trail[length ++] = cell;
+			if (cell == exit) {
+				solved = true;
+				break;
+			}
+			int next = -1;
+			int num = maze.openNeighbours(cell, neighs);
+			for (int i = 0; i < num; i ++) {
+				if (neighs[i] != prev && degree.get(neighs[i]) > 0) {
+					next = neighs[i];
+					break;
+				}
+			}
+			if (next < 0)
+				break;
+			prev = cell;
+			cell = next;
+		}
+
+		if (solved) {
+			path = Arrays.copyOf(trail, length);
+			for (int id : path)
+				maze.drawFtPrt(id);
+		}
+		if (stats != null) {
+			stats.addPhase("follow", System.nanoTime() - start);
+			stats.end(maze, step_counter, path);
+		}
+	} // end of solveMaze()
+
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Use after solveMaze(maze), the path found.
+	 *
+	 * @return the indices of the cells from entrance to exit, null if not solved
+	 */
+	public int[] getPath() {
+		return path;
+	}
+
+	/**
+	 * Checks if is solved.
+	 *
+	 * @return true, if is solved
+	 */
+	@Override
+	public boolean isSolved() {
+		return solved;
+	} // end of isSolved()
+
+	/**
+	 * Cells explored.
+	 *
+	 * @return the count of cells, all are scanned
+	 */
+	@Override
+	public int cellsExplored() {
+		return step_counter;
+	} // end of cellsExplored()
+
+	/**
+	 * Fill a dead end and then every neighbor it turns into one. A cell is
+	 * claimed by setting its degree from 1 to 0, so only one task fills it.
+	 *
+	 * @param cell the index of the dead end
+	 * @param work the worklist of the task
+	 * @param neighs the array for neighbors()
+	 */
+	private void fill(int cell, IntQueue work, int neighs[]) {
+		if (!degree.compareAndSet(cell, 1, 0))
+			return;
+		work.add(cell);
+		while (!work.isEmpty()) {
+			int num = maze.openNeighbours(work.poll(), neighs);
+			for (int i = 0; i < num; i ++) {
+				int ne = neighs[i];
+				if (degree.get(ne) > 0 && degree.decrementAndGet(ne) == 1
+						&& ne != entrance && ne != exit && degree.compareAndSet(ne, 1, 0))
+					work.add(ne);
+			}
+		}
+	}
+
+	/**
+	 * A pass over the tiles from, from + 1, ..., to - 1, split in halves
+	 * until there is a single one.
+	 */
+	private class Pass extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The range of tiles. */
+		private final int from, to;
+
+		/** False to count the degrees, true to fill the dead ends. */
+		private final boolean isFilling;
+
+		Pass(int from, int to, boolean isFilling) {
+			this.from = from;
+			this.to = to;
+			this.isFilling = isFilling;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Pass(from, mid, isFilling), new Pass(mid, to, isFilling));
+				return;
+			}
+
+			int neighs[] = new int[NUM_DIR + 1];
+			IntQueue work = new IntQueue(64);
+			// in long, as the end of the last tile may pass Integer.MAX_VALUE
+			int end = (int) Math.min(maze.numCells(), (from + 1L) * TILE);
+			for (int cell = from * TILE; cell < end; cell ++) {
+				if (!isFilling)
+					degree.set(cell, maze.openNeighbours(cell, neighs));
+				else if (degree.get(cell) == 1 && cell != entrance && cell != exit)
+					fill(cell, work, neighs);
+			}
+		}
+	}
+
+} // end of class DeadEndFillingSolver
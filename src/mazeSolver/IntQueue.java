@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import java.util.Arrays;
+
+/**
+ * FIFO queue of ints on a ring buffer, used by the solvers to queue cell
+ * indices without boxing them. The capacity is a power of two and doubles
+ * when the queue is full.
+ */
+class IntQueue {
+
+	/** The buffer. */
+	private int buf[];
+
+	/** The index of the head in buf[]. */
+	private int head = 0;
+
+	/** The number of ints in the queue. */
+	private int size = 0;
+
+	/**
+	 * Instantiates a new queue.
+	 *
+	 * @param capacity the initial capacity, rounded up to a power of two
+	 */
+	IntQueue(int capacity) {
+		buf = new int[Math.max(16, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1)];
+	}
+
+	/**
+	 * Add an int at the tail.
+	 *
+	 * @param v the int
+	 */
+	void add(int v) {
+		if (size == buf.length)
+			grow();
+		buf[(head + size ++) & (buf.length - 1)] = v;
+	}
+
+	/**
+	 * Remove the int at the head.
+	 *
+	 * @return the int
+	 */
+	int poll() {
+		int v = buf[head];
+		head = (head + 1) & (buf.length - 1);
+		size --;
+		return v;
+	}
+
+	/**
+	 * The number of ints in the queue.
+	 *
+	 * @return the size
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the queue is empty.
+	 *
+	 * @return true, if is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Remove all ints.
+	 */
+	void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Double the capacity, moving the queue to the start of the new buffer.
+	 */
+	private void grow() {
+		int bigger[] = Arrays.copyOfRange(buf, head, head + 2 * buf.length);
+		System.arraycopy(buf, 0, bigger, buf.length - head, head);
+		buf = bigger;
+		head = 0;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of longs on an array, used by the solvers to order keyed
+ * cells without boxing them. The capacity doubles when the heap is full.
+ */
+class LongHeap {
+
+	/** The heap, heap[(i - 1) / 2] &lt;= heap[i]. */
+	private long heap[];
+
+	/** The number of longs in the heap. */
+	private int size = 0;
+
+	/**
+	 * Instantiates a new heap.
+	 *
+	 * @param capacity the initial capacity
+	 */
+	LongHeap(int capacity) {
+		heap = new long[Math.max(16, capacity)];
+	}
+
+	/**
+	 * Add a long.
+	 *
+	 * @param v the long
+	 */
+	void add(long v) {
+		if (size == heap.length)
+			heap = Arrays.copyOf(heap, 2 * size);
+		int i = size ++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= v)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = v;
+	}
+
+	/**
+	 * Remove the smallest long.
+	 *
+	 * @return the long
+	 */
+	long poll() {
+		long min = heap[0];
+		long v = heap[-- size];
+		int i = 0;
+		for (int child = 1; child < size; child = 2 * i + 1) {
+			if (child + 1 < size && heap[child + 1] < heap[child])
+				child ++;
+			if (v <= heap[child])
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = v;
+		return min;
+	}
+
+	/**
+	 * The number of longs in the heap.
+	 *
+	 * @return the size
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the heap is empty.
+	 *
+	 * @return true, if is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Remove all longs.
+	 */
+	void clear() {
+		size = 0;
+	}
+}
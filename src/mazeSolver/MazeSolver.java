@@ -1,6 +1,7 @@
 package mazeSolver;
 
 import maze.Maze;
+import maze.MazeRandom;
 
 /**
  * Interface of a maze solveer.
@@ -31,4 +32,22 @@ public interface MazeSolver
 	 * It is not required to be accurate and no marks are given (or lost) on it. 
 	 */
 	public abstract int cellsExplored();
+
+
+	/**
+	 * Set the random numbers of a solver making random choices, so that the same seed makes the same choices.
+	 * Solvers without random choices ignore it.
+	 * @param rand The random numbers.
+	 */
+	public default void setRandom(MazeRandom rand) {
+	}
+
+
+	/**
+	 * Set the metrics to fill by each solve, null to stop measuring, which is the default.
+	 * Solvers not measuring ignore it.
+	 * @param stats The metrics.
+	 */
+	public default void setStats(SolveStats stats) {
+	}
 } // end of interface mazeGenerator
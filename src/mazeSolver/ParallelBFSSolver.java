@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static maze.Maze.NUM_DIR;
+
+/**
+ * Implements a level-synchronous parallel BFS maze solving algorithm. The BFS
+ * from the entrance expands one level at a time, and each level is expanded in
+ * parallel on a ForkJoinPool. Top-down, the frontier is cut into chunks, each
+ * task claims the unvisited neighbors of its chunk in an atomic visited bitmap
+ * and collects them in its own buffer, and the buffers form the next frontier.
+ * Once the frontier is wide compared to the cells left, a bottom-up step is
+ * cheaper: every unvisited cell looks for a neighbor in the frontier instead.
+ *
+ * Besides solving, computeDistances() gives the distance field of the whole
+ * maze from any cell, for reachability and distance jobs.
+ */
+public class ParallelBFSSolver implements MazeSolver {
+
+	/** The number of frontier cells per top-down task. */
+	private static final int CHUNK = 4096;
+
+	/** The number of cells per bottom-up task, a multiple of 64. */
+	private static final int CELL_CHUNK = 1 << 16;
+
+	/** Go bottom-up when the frontier times this is more than the cells left. */
+	private static final int BOTTOM_UP_RATIO = 14;
+
+	/** The pool to run on. */
+	private final ForkJoinPool pool;
+
+	/** The maze. */
+	private Maze maze;
+
+	/** The distance of each cell from the source, -1 if not reached. */
+	private int dist[];
+
+	/** The visited bits, indexed by cell index. */
+	private AtomicLongArray visited;
+
+	/** The current frontier, frontier[0] to frontier[frontierSize - 1]. */
+	private int frontier[];
+
+	/** The size of the frontier. */
+	private int frontierSize;
+
+	/** The cells found by each task of a step, and their numbers. */
+	private int found[][];
+	private int foundSize[];
+
+	/** The solved flag. */
+	private boolean solved = false;
+
+	/** The step_counter. */
+	private int step_counter = 0;
+
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+
+	/**
+	 * Instantiates a new solver on the common pool.
+	 */
+	public ParallelBFSSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Instantiates a new solver.
+	 *
+	 * @param pool the pool to run on
+	 */
+	public ParallelBFSSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Solve maze, stopping at the level reaching the exit.
+	 *
+	 * @param maze the maze
+	 */
+	@Override
+	public void solveMaze(Maze maze) {
+		int exit = maze.index(maze.exit);
+		if (stats != null)
+			stats.begin();
+		search(maze, maze.index(maze.entrance), exit, stats);
+		solved = dist[exit] >= 0;
+
+		// draw the footprints, Maze.drawFtPrt() is not thread-safe
+		long start = stats == null ? 0 : System.nanoTime();
+		for (int w = 0; w < visited.length(); w ++) {
+			for (long bits = visited.get(w); bits != 0; bits &= bits - 1)
+				maze.drawFtPrt(w << 6 | Long.numberOfTrailingZeros(bits));
+		}
+		if (stats != null) {
+			stats.addPhase("draw", System.nanoTime() - start);
+			stats.end(maze, step_counter, getPath());
+		}
+	} // end of solveMaze()
+
+	/**
+	 * Compute the distance of every cell from a cell, through open walls and tunnels.
+	 *
+	 * @param maze the maze
+	 * @param source the index of the cell to measure from
+	 * @return the distance of each cell, -1 for cells not reachable
+	 */
+	public int[] computeDistances(Maze maze, int source) {
+		search(maze, source, -1, null);
+		return dist.clone();
+	}
+
+	/**
+	 * Use after solveMaze(maze), the shortest path found.
+	 *
+	 * @return the indices of the cells from entrance to exit, null if not solved
+	 */
+	public int[] getPath() {
+		if (!solved)
+			return null;
+		int neighs[] = new int[NUM_DIR + 1];
+		int cell = maze.index(maze.exit);
+		int path[] = new int[dist[cell] + 1];
+		for (int i = dist[cell]; i >= 0; i --) {
+			path[i] = cell;
+			int num = maze.openNeighbours(cell, neighs);
+			for (int j = 0; j < num; j ++) {
+				if (dist[neighs[j]] == i - 1) {
+					cell = neighs[j];
+					break;
+				}
+			}
+		}
+		return path;
+	}
+
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Checks if is solved.
+	 *
+	 * @return true, if is solved
+	 */
+	@Override
+	public boolean isSolved() {
+		return solved;
+	} // end of isSolved()
+
+	/**
+	 * Cells explored.
+	 *
+	 * @return the count of cells visited
+	 */
+	@Override
+	public int cellsExplored() {
+		return step_counter;
+	} // end of cellsExplored()
+
+	/**
+	 * BFS level by level from a cell.
+	 *
+	 * @param maze the maze
+	 * @param source the index of the cell to start from
+	 * @param target the index of the cell to stop at, -1 to reach every cell
+	 * @param stats the metrics to fill, null if not measuring
+	 */
+	private void search(Maze maze, int source, int target, SolveStats stats) {
+		this.maze = maze;
+		int numCells = maze.numCells();
+		dist = new int[numCells];
+		Arrays.parallelSetAll(dist, i -> -1);
+		visited = new AtomicLongArray((numCells + 63) >>> 6);
+
+		claim(source);
+		dist[source] = 0;
+		frontier = new int[] { source };
+		frontierSize = 1;
+		step_counter = 1;
+
+		for (int level = 0; frontierSize > 0 && (target < 0 || dist[target] < 0); level ++) {
+			boolean isBottomUp = (long) frontierSize * BOTTOM_UP_RATIO > numCells - step_counter;
+			long start = 0;
+			if (stats != null) {
+				stats.frontier(frontierSize);
+				start = System.nanoTime();
+			}
+			if (isBottomUp)
+				bottomUp(level);
+			else
+				topDown(level);
+			if (stats != null)
+				stats.addPhase(isBottomUp ? "bottomUp" : "topDown", System.nanoTime() - start);
+			step_counter += frontierSize;
+		}
+	}
+
+	/**
+	 * Expand a level from the frontier cells.
+	 *
+	 * @param level the distance of the frontier cells
+	 */
+	private void topDown(int level) {
+		int tasks = (int) (((long) frontierSize + CHUNK - 1) / CHUNK);
+		found = new int[tasks][];
+		foundSize = new int[tasks];
+		pool.invoke(new Step(0, tasks, level, false));
+		collect();
+	}
+
+	/**
+	 * Expand a level from the unvisited cells.
+	 *
+	 * @param level the distance of the frontier cells
+	 */
+	private void bottomUp(int level) {
+		int tasks = (int) (((long) maze.numCells() + CELL_CHUNK - 1) / CELL_CHUNK);
+		found = new int[tasks][];
+		foundSize = new int[tasks];
+		pool.invoke(new Step(0, tasks, level, true));
+		collect();
+	}
+
+	/**
+	 * Join the cells found by the tasks into the next frontier.
+	 */
+	private void collect() {
+		int size = 0;
+		for (int n : foundSize)
+			size += n;
+		frontier = new int[size];
+		frontierSize = 0;
+		for (int i = 0; i < found.length; i ++) {
+			System.arraycopy(found[i], 0, frontier, frontierSize, foundSize[i]);
+			frontierSize += foundSize[i];
+		}
+		found = null;
+	}
+
+	/**
+	 * Set a cell visited, unless it already is.
+	 *
+	 * @param cell the index of the cell
+	 * @return true, if this call set it
+	 */
+	private boolean claim(int cell) {
+		int w = cell >>> 6;
+		long bit = 1L << cell;
+		long old;
+		do {
+			old = visited.get(w);
+			if ((old & bit) != 0)
+				return false;
+		} while (!visited.compareAndSet(w, old, old | bit));
+		return true;
+	}
+
+	/**
+	 * The tasks from, from + 1, ..., to - 1 of a step, split in halves
+	 * until there is a single one.
+	 */
+	private class Step extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The range of tasks. */
+		private final int from, to;
+
+		/** The distance of the frontier cells. */
+		private final int level;
+
+		/** True for a bottom-up step. */
+		private final boolean isBottomUp;
+
+		Step(int from, int to, int level, boolean isBottomUp) {
+			this.from = from;
+			this.to = to;
+			this.level = level;
+			this.isBottomUp = isBottomUp;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Step(from, mid, level, isBottomUp), new Step(mid, to, level, isBottomUp));
+			}
+			else if (isBottomUp)
+				scanCells(from);
+			else
+				scanFrontier(from);
+		}
+
+		/**
+		 * Claim the unvisited neighbors of a chunk of the frontier.
+		 *
+		 * @param task the index of the chunk
+		 */
+		private void scanFrontier(int task) {
+			int neighs[] = new int[NUM_DIR + 1];
+			int out[] = new int[64];
+			int size = 0;
+			// in long, as the end of the last chunk may pass Integer.MAX_VALUE
+			int end = (int) Math.min(frontierSize, (task + 1L) * CHUNK);
+			for (int i = task * CHUNK; i < end; i ++) {
+				int num = maze.openNeighbours(frontier[i], neighs);
+				for (int j = 0; j < num; j ++) {
+					int ne = neighs[j];
+					if (claim(ne)) {
+						dist[ne] = level + 1;
+						if (size == out.length)
+							out = Arrays.copyOf(out, 2 * size);
+						out[size ++] = ne;
+					}
+				}
+			}
+			found[task] = out;
+			foundSize[task] = size;
+		}
+
+		/**
+		 * Visit the unvisited cells of a chunk of the maze that have a
+		 * neighbor in the frontier. Other tasks only write dist[] of cells
+		 * to level + 1, so reading level from it is safe while they run.
+		 *
+		 * @param task the index of the chunk
+		 */
+		private void scanCells(int task) {
+			int neighs[] = new int[NUM_DIR + 1];
+			int out[] = new int[64];
+			int size = 0;
+			int end = (int) Math.min(maze.numCells(), (task + 1L) * CELL_CHUNK);
+			for (int cell = task * CELL_CHUNK; cell < end; cell ++) {
+				if (dist[cell] >= 0)
+					continue;
+				int num = maze.openNeighbours(cell, neighs);
+				for (int j = 0; j < num; j ++) {
+					if (dist[neighs[j]] == level) {
+						claim(cell);
+						dist[cell] = level + 1;
+						if (size == out.length)
+							out = Arrays.copyOf(out, 2 * size);
+						out[size ++] = cell;
+						break;
+					}
+				}
+			}
+			found[task] = out;
+			foundSize[task] = size;
+		}
+	}
+
+} // end of class ParallelBFSSolver
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static maze.Maze.NUM_DIR;
+
+/**
+ * Implements a concurrent Bi-directional BFS maze solving algorithm. As in
+ * BiDirectionalBFSSolver, BFS searches start at both the entrance and exit,
+ * but here both run at the same time as tasks of a ForkJoinPool. Each search
+ * expands one level at a time, and a level wider than a chunk is cut into
+ * chunks expanded in parallel, so the searches take two or more workers of
+ * the pool; on a pool of a single worker, the first search runs until it
+ * reaches the root of the other. The owner of every cell is kept in a shared
+ * atomic array: a search claims an unvisited cell with a compare-and-set,
+ * and both stop as soon as either one reaches a cell claimed by the other.
+ * In a perfect maze the edge where they meet is on the only path from
+ * entrance to exit; in a maze with loops the path found is not guaranteed to
+ * be the shortest one.
+ */
+public class ParallelBiDirectionalBFSSolver implements MazeSolver {
+
+	/** The Constant HEAD. */
+	private static final int HEAD = 0;
+
+	/** The Constant TAIL. */
+	private static final int TAIL = 1;
+
+	/** The number of frontier cells per task, a narrower level is expanded by its search alone. */
+	private static final int CHUNK = 4096;
+
+	/** The pool to run on. */
+	private final ForkJoinPool pool;
+
+	/** The maze. */
+	private Maze maze;
+
+	/**
+	 * The state of each cell, indexed by cell index: 0 if not visited,
+	 * otherwise (distance + 1) * 2 + side of the search that claimed it.
+	 */
+	private AtomicIntegerArray state;
+
+	/** Set when the searches meet. */
+	private AtomicBoolean met;
+
+	/** The two cells of the meeting edge, on the HEAD and TAIL side. */
+	private volatile int meetHead, meetTail;
+
+	/** The searches from entrance and exit. */
+	private Search searches[] = new Search[2];
+
+	/** The solved flag. */
+	private boolean solved = false;
+
+	/** The step_counter. */
+	private int step_counter = 0;
+
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+
+	/** The path from entrance to exit, null if not solved. */
+	private int path[] = null;
+
+	/**
+	 * Instantiates a new solver on the common pool.
+	 */
+	public ParallelBiDirectionalBFSSolver() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Instantiates a new solver.
+	 *
+	 * @param pool the pool to run on
+	 */
+	public ParallelBiDirectionalBFSSolver(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Solve maze. Both searches run on the pool, and the calling thread waits
+	 * for them. Footprints are drawn after both have stopped, as
+	 * Maze.drawFtPrt() is not thread-safe.
+	 *
+	 * @param maze the maze
+	 */
+	@Override
+	public void solveMaze(Maze maze) {
+		this.maze = maze;
+		solved = false;
+		step_counter = 0;
+		path = null;
+		if (stats != null)
+			stats.begin();
+		state = new AtomicIntegerArray(maze.numCells());
+		met = new AtomicBoolean(false);
+
+		int entrance = maze.index(maze.entrance);
+		int exit = maze.index(maze.exit);
+		searches[HEAD] = new Search(HEAD, entrance);
+		searches[TAIL] = new Search(TAIL, exit);
+		if (entrance == exit) {
+			meetHead = meetTail = entrance;
+			met.set(true);
+		}
+		else {
+			ForkJoinTask<?> both = pool.submit(() -> ForkJoinTask.invokeAll(searches[HEAD], searches[TAIL]));
+			try {
+				both.get();
+			} catch (InterruptedException e) {
+				// stop the searches, and wait for them to let go of this solve
+				met.set(true);
+				both.join();
+				Thread.currentThread().interrupt();
+				// close the metrics of the cancelled solve, with nothing solved
+				if (stats != null)
+					stats.end(maze, step_counter, null);
+				return;
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("The search failed.", e.getCause());
+			}
+		}
+
+		long start = stats == null ? 0 : System.nanoTime();
+		for (Search search : searches) {
+			for (int i = 0; i < search.size; i ++)
+				maze.drawFtPrt(search.visited[i]);
+			step_counter += search.size;
+		}
+		if (stats != null) {
+			stats.addPhase("head", searches[HEAD].nanos);
+			stats.addPhase("tail", searches[TAIL].nanos);
+			stats.addPhase("draw", System.nanoTime() - start);
+			stats.frontier(searches[HEAD].peak + searches[TAIL].peak);
+			start = System.nanoTime();
+		}
+
+		if (met.get() && state.get(meetHead) != 0) {
+			solved = true;
+			int headDist = state.get(meetHead) / 2 - 1;
+			int tailDist = entrance == exit ? -1 : state.get(meetTail) / 2 - 1;
+			path = new int[headDist + tailDist + 2];
+			// walk back from the meeting edge to the entrance and to the exit
+			for (int i = headDist, cell = meetHead; i >= 0; i --) {
+				path[i] = cell;
+				cell = searches[HEAD].parent(cell);
+			}
+			for (int i = headDist + 1, cell = meetTail; i < path.length; i ++) {
+				path[i] = cell;
+				cell = searches[TAIL].parent(cell);
+			}
+		}
+		if (stats != null) {
+			stats.addPhase("path", System.nanoTime() - start);
+			stats.end(maze, step_counter, path);
+		}
+	} // end of solveMaze()
+
+	/**
+	 * Use after solveMaze(maze), the path found.
+	 *
+	 * @return the indices of the cells from entrance to exit, null if not solved
+	 */
+	public int[] getPath() {
+		return path == null ? null : path.clone();
+	}
+
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Checks if is solved.
+	 *
+	 * @return true, if is solved
+	 */
+	@Override
+	public boolean isSolved() {
+		return solved;
+	} // end of isSolved()
+
+	/**
+	 * Cells explored.
+	 *
+	 * @return the count of cells visited
+	 */
+	@Override
+	public int cellsExplored() {
+		return step_counter;
+	} // end of cellsExplored()
+
+	/**
+	 * The BFS from one side. Its queue is an array of the cells in the order
+	 * they were claimed, level by level, so it is also the list of footprints
+	 * to draw.
+	 */
+	private class Search extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The side. */
+		private final int side;
+
+		/** The cells claimed, visited[0] to visited[size - 1]. */
+		private int visited[] = new int[1024];
+
+		/** The number of cells claimed. */
+		private int size = 0;
+
+		/** The cells claimed by each chunk of a level, and their numbers. */
+		private int found[][];
+		private int foundSize[];
+
+		/** The neighbors of a cell, filled by Maze.openNeighbours(). */
+		private int neighs[] = new int[NUM_DIR + 1];
+
+		/** True to measure the time and the largest frontier. */
+		private final boolean isMeasured = stats != null;
+
+		/** The time of the search in nanoseconds, if measured. */
+		private long nanos = 0;
+
+		/** The largest number of cells claimed and not expanded yet, if measured. */
+		private int peak = 0;
+
+		/**
+		 * Instantiates a new search and claims its root.
+		 *
+		 * @param side the side
+		 * @param root the entrance or exit
+		 */
+		Search(int side, int root) {
+			this.side = side;
+			if (state.compareAndSet(root, 0, 2 + side))
+				visited[size ++] = root;
+		}
+
+		@Override
+		protected void compute() {
+			long start = isMeasured ? System.nanoTime() : 0;
+			// expand a level at a time, visited[from] to visited[to - 1], until the searches meet
+			for (int from = 0, to = size; from < to && !met.get(); from = to, to = size) {
+				if (isMeasured && to - from > peak)
+					peak = to - from;
+				if (to - from <= CHUNK)
+					expand(from, to, neighs, null, 0);
+				else
+					expandInParallel(from, to);
+			}
+			if (isMeasured)
+				nanos = System.nanoTime() - start;
+		}
+
+		/**
+		 * Expand a level in chunks on the pool, then append the cells they claimed.
+		 *
+		 * @param from the first cell of the level in visited[]
+		 * @param to the end of the level in visited[]
+		 */
+		private void expandInParallel(int from, int to) {
+			int tasks = (int) (((long) to - from + CHUNK - 1) / CHUNK);
+			found = new int[tasks][];
+			foundSize = new int[tasks];
+			new Chunks(this, from, to, 0, tasks).invoke();
+			for (int i = 0; i < tasks; i ++) {
+				if (size + foundSize[i] > visited.length)
+					visited = Arrays.copyOf(visited, Math.max(2 * visited.length, size + foundSize[i]));
+				System.arraycopy(found[i], 0, visited, size, foundSize[i]);
+				size += foundSize[i];
+			}
+			found = null;
+		}
+
+		/**
+		 * Claim the unvisited neighbors of cells of the level, stopping if the searches meet.
+		 *
+		 * @param from the first cell in visited[]
+		 * @param to the end of the cells in visited[]
+		 * @param neighs the array for the neighbors of a cell
+		 * @param chunk the cells claimed by a chunk, appended to visited[] if null
+		 * @param task the index of the chunk
+		 */
+		private void expand(int from, int to, int neighs[], int chunk[], int task) {
+			int out[] = chunk == null ? visited : chunk;
+			int num = chunk == null ? size : 0;
+			for (int i = from; i < to && !met.get(); i ++) {
+				int cell = visited[i];
+				int code = (state.get(cell) / 2 + 1) * 2 + side;
+				int n = maze.openNeighbours(cell, neighs);
+				for (int j = 0; j < n; j ++) {
+					int ne = neighs[j];
+					if (state.compareAndSet(ne, 0, code)) {
+						if (num == out.length)
+							out = Arrays.copyOf(out, 2 * num);
+						out[num ++] = ne;
+					}
+					else if (state.get(ne) % 2 != side) {
+						// The fronts meet between cell and ne
+						if (met.compareAndSet(false, true)) {
+							meetHead = side == HEAD ? cell : ne;
+							meetTail = side == HEAD ? ne : cell;
+						}
+						break;
+					}
+				}
+			}
+			if (chunk == null) {
+				visited = out;
+				size = num;
+			}
+			else {
+				found[task] = out;
+				foundSize[task] = num;
+			}
+		}
+
+		/**
+		 * The cell one step closer to the root of this search.
+		 *
+		 * @param cell the index of a cell claimed by this search
+		 * @return the index of its parent, -1 for the root
+		 */
+		private int parent(int cell) {
+			int code = state.get(cell);
+			if (code < 4)
+				return -1;
+			int num = maze.openNeighbours(cell, neighs);
+			for (int i = 0; i < num; i ++) {
+				if (state.get(neighs[i]) == code - 2)
+					return neighs[i];
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * The chunks from, from + 1, ..., to - 1 of a level of a search, split in
+	 * halves until there is a single one.
+	 */
+	private static class Chunks extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+
+		/** The level in visited[] of the search. */
+		private final int levelFrom, levelTo;
+
+		/** The range of chunks. */
+		private final int from, to;
+
+		Chunks(Search search, int levelFrom, int levelTo, int from, int to) {
+			this.search = search;
+			this.levelFrom = levelFrom;
+			this.levelTo = levelTo;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Chunks(search, levelFrom, levelTo, from, mid),
+						new Chunks(search, levelFrom, levelTo, mid, to));
+				return;
+			}
+			int start = levelFrom + from * CHUNK;
+			int end = (int) Math.min(levelTo, start + (long) CHUNK);
+			search.expand(start, end, new int[NUM_DIR + 1], new int[64], from);
+		}
+	}
+
+} // end of class ParallelBiDirectionalBFSSolver
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static maze.Maze.NUM_DIR;
+
+/**
+ * Index of a perfect maze answering distance and path queries between any two
+ * cells without searching the maze. The maze is a tree, tunnels included, so
+ * the path between two cells goes up from each of them to their lowest common
+ * ancestor. The index roots the tree at cell 0 and keeps for each cell its
+ * parent, depth and a jump pointer, chosen so that any ancestor is reached in
+ * O(log n) jumps. That is the bound of binary lifting with 3 ints per cell
+ * instead of log n, which matters for mazes of billions of cells.
+ *
+ * The index is built once per maze and is read-only afterwards, so any number
+ * of threads may query it. It does not follow changes of the maze.
+ */
+public class PathIndex {
+
+	/** The parent of each cell, the root is its own parent. */
+	private final int parent[];
+
+	/** The depth of each cell, 0 for the root. */
+	private final int depth[];
+
+	/**
+	 * The jump pointer of each cell, an ancestor. The depth of the jump target
+	 * only depends on the depth of the cell, as the skew-binary numbers.
+	 */
+	private final int jump[];
+
+	/**
+	 * Build the index of a maze.
+	 *
+	 * @param maze the maze
+	 * @throws IllegalArgumentException if the maze is not perfect
+	 */
+	public PathIndex(Maze maze) {
+		int numCells = maze.numCells();
+		parent = new int[numCells];
+		depth = new int[numCells];
+		jump = new int[numCells];
+		Arrays.fill(depth, -1);
+
+		// BFS from the root, jump[] of a cell is set from its parent's
+		int queue[] = new int[numCells];
+		int neighs[] = new int[NUM_DIR + 1];
+		int head = 0, tail = 0;
+		queue[tail ++] = 0;
+		depth[0] = 0;
+		while (head < tail) {
+			int cell = queue[head ++];
+			int p = parent[cell];
+			if (cell == p)
+				jump[cell] = cell;
+			else if (depth[p] - depth[jump[p]] == depth[jump[p]] - depth[jump[jump[p]]])
+				jump[cell] = jump[jump[p]];
+			else
+				jump[cell] = p;
+
+			int num = maze.openNeighbours(cell, neighs);
+			for (int i = 0; i < num; i ++) {
+				int ne = neighs[i];
+				if (depth[ne] < 0) {
+					parent[ne] = cell;
+					depth[ne] = depth[cell] + 1;
+					queue[tail ++] = ne;
+				}
+				else if (ne != parent[cell])
+					throw new IllegalArgumentException("The maze has a loop.");
+			}
+		}
+		if (tail < numCells)
+			throw new IllegalArgumentException("The maze has unreachable cells.");
+	}
+
+	/**
+	 * The number of steps between two cells.
+	 *
+	 * @param a the index of a cell
+	 * @param b the index of the other cell
+	 * @return the distance
+	 */
+	public int distance(int a, int b) {
+		return depth[a] + depth[b] - 2 * depth[lca(a, b)];
+	}
+
+	/**
+	 * The lowest common ancestor of two cells, the turning point of the path
+	 * between them.
+	 *
+	 * @param a the index of a cell
+	 * @param b the index of the other cell
+	 * @return the index of the ancestor
+	 */
+	public int lca(int a, int b) {
+		if (depth[a] > depth[b])
+			a = ancestor(a, depth[b]);
+		else
+			b = ancestor(b, depth[a]);
+		while (a != b) {
+			if (jump[a] != jump[b]) {
+				a = jump[a];
+				b = jump[b];
+			}
+			else {
+				a = parent[a];
+				b = parent[b];
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * The ancestor of a cell at a depth.
+	 *
+	 * @param cell the index of the cell
+	 * @param d the depth, at most the depth of the cell
+	 * @return the index of the ancestor
+	 */
+	public int ancestor(int cell, int d) {
+		while (depth[cell] > d)
+			cell = depth[jump[cell]] >= d ? jump[cell] : parent[cell];
+		return cell;
+	}
+
+	/**
+	 * The path between two cells, produced as it is iterated: O(1) per cell
+	 * up to the turning point and O(log n) per cell after it.
+	 *
+	 * @param a the index of the first cell
+	 * @param b the index of the last cell
+	 * @return the indices of the cells from a to b
+	 */
+	public PrimitiveIterator.OfInt path(int a, int b) {
+		int top = lca(a, b);
+		return new PrimitiveIterator.OfInt() {
+
+			/** The next cell, -1 when done. */
+			private int next = a;
+
+			/** True while going up from a to top. */
+			private boolean isUp = true;
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public int nextInt() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				int cell = next;
+				if (cell == b)
+					next = -1;
+				else if (isUp && cell != top)
+					next = parent[cell];
+				else {
+					isUp = false;
+					next = ancestor(b, depth[cell] + 1);
+				}
+				return cell;
+			}
+		};
+	}
+
+	/**
+	 * The path between two cells.
+	 *
+	 * @param a the index of the first cell
+	 * @param b the index of the last cell
+	 * @return the indices of the cells from a to b
+	 */
+	public int[] getPath(int a, int b) {
+		int top = lca(a, b);
+		int path[] = new int[depth[a] + depth[b] - 2 * depth[top] + 1];
+		int i = 0;
+		for (int cell = a; cell != top; cell = parent[cell])
+			path[i ++] = cell;
+		path[i] = top;
+		int j = path.length - 1;
+		for (int cell = b; cell != top; cell = parent[cell])
+			path[j --] = cell;
+		return path;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+/**
+ * Implements maze solving by a PathIndex. The index of the last maze solved is
+ * kept, so solving the same maze again, e.g. after moving its entrance and
+ * exit, costs one path query instead of a search. The index is built again
+ * once the walls change, see Maze.modCount(). Only for perfect mazes, any
+ * other maze is left unsolved.
+ */
+public class PathIndexSolver implements MazeSolver {
+
+	/** The maze indexed. */
+	private Maze maze = null;
+
+	/** The index of the maze. */
+	private PathIndex index = null;
+
+	/** The modCount() of the maze when it was indexed. */
+	private long indexedAt = -1;
+
+	/** The solved flag. */
+	private boolean solved = false;
+
+	/** The step_counter. */
+	private int step_counter = 0;
+
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+
+	/** The path from entrance to exit, null if not solved. */
+	private int path[] = null;
+
+	/**
+	 * Solve maze.
+	 *
+	 * @param maze the maze
+	 */
+	@Override
+	public void solveMaze(Maze maze) {
+		if (stats != null)
+			stats.begin();
+		long start = stats == null ? 0 : System.nanoTime();
+		solved = false;
+		path = null;
+		step_counter = 0;
+		// index again if the maze is another one, or was changed since
+		if (maze != this.maze || maze.modCount() != indexedAt) {
+			this.maze = null;
+			try {
+				index = new PathIndex(maze);
+			}
+			catch (IllegalArgumentException e) {
+				// not a perfect maze, left unsolved
+				index = null;
+				if (stats != null)
+					stats.end(maze, step_counter, null);
+				return;
+			}
+			this.maze = maze;
+			indexedAt = maze.modCount();
+			if (stats != null) {
+				stats.addPhase("index", System.nanoTime() - start);
+				start = System.nanoTime();
+			}
+		}
+		path = index.getPath(maze.index(maze.entrance), maze.index(maze.exit));
+		for (int cell : path)
+			maze.drawFtPrt(cell);
+		step_counter = path.length;
+		solved = true;
+		if (stats != null) {
+			stats.addPhase("query", System.nanoTime() - start);
+			stats.end(maze, step_counter, path);
+		}
+	} // end of solveMaze()
+
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * The index of the last maze solved.
+	 *
+	 * @return the index, null if no maze is solved yet
+	 */
+	public PathIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Use after solveMaze(maze), the path found.
+	 *
+	 * @return the indices of the cells from entrance to exit, null if not solved
+	 */
+	public int[] getPath() {
+		return path;
+	}
+
+	/**
+	 * Checks if is solved.
+	 *
+	 * @return true, if is solved
+	 */
+	@Override
+	public boolean isSolved() {
+		return solved;
+	} // end of isSolved()
+
+	/**
+	 * Cells explored.
+	 *
+	 * @return the count of cells on the path, no other cell is visited
+	 */
+	@Override
+	public int cellsExplored() {
+		return step_counter;
+	} // end of cellsExplored()
+
+} // end of class PathIndexSolver
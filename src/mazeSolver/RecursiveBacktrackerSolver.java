@@ -3,14 +3,11 @@
  */
 package mazeSolver;
 
-import maze.Cell;
 import maze.Maze;
+import maze.MazeRandom;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
 
-import static maze.Maze.HEX;
 import static maze.Maze.NUM_DIR;
 
 // TODO: Auto-generated Javadoc
@@ -31,8 +28,14 @@ public class RecursiveBacktrackerSolver implements MazeSolver {
 	/** The maze. */
 	private Maze maze;
 	
-	/** The visited table. */
-	private boolean visited[][];
+	/** The initial capacity of the stack. */
+	private static final int INIT_STACK_SIZE = 1024;
+
+	/** The visited bits, indexed by cell index, kept for the next maze of the same size. */
+	private long visited[];
+
+	/** The stack of cells on the path from entrance, kept for the next maze. */
+	private int stack[] = new int[INIT_STACK_SIZE];
 	
 	/** The solved flag. */
 	private boolean solved = false;
@@ -40,8 +43,40 @@ public class RecursiveBacktrackerSolver implements MazeSolver {
 	/** The step_counter: number of cell visited. */
 	private int step_counter = 0;
 	
-	/** The rand. */
-	private Random rand = new Random();
+	/** The metrics to fill, null if not measuring. */
+	private SolveStats stats = null;
+	
+	/** The rand, seeded so that a solution can be found again. */
+	private MazeRandom rand;
+
+
+	/**
+	 * Instantiates a new solver with a random seed.
+	 */
+	public RecursiveBacktrackerSolver() {
+		rand = new MazeRandom();
+	}
+
+
+	/**
+	 * Instantiates a new solver.
+	 *
+	 * @param seed the seed of the random choices
+	 */
+	public RecursiveBacktrackerSolver(long seed) {
+		rand = new MazeRandom(seed);
+	}
+
+
+	/**
+	 * Sets the random numbers.
+	 *
+	 * @param rand the random numbers
+	 */
+	@Override
+	public void setRandom(MazeRandom rand) {
+		this.rand = rand;
+	}
 
 
 	/**
@@ -52,20 +87,36 @@ public class RecursiveBacktrackerSolver implements MazeSolver {
 	@Override
 	public void solveMaze(Maze maze) {
 		this.maze = maze;
+		solved = false;
+		step_counter = 0;
+		if (stats != null)
+			stats.begin();
 		// Initialize visited table
-		visited = new boolean[maze.sizeR][maze.sizeC];
-		for(boolean[] r: visited) {
-			for(boolean c: r) {
-				c = false;
-			}
-		}
+		int words = (maze.numCells() + 63) >>> 6;
+		if (visited == null || visited.length != words)
+			visited = new long[words];
+		else
+			Arrays.fill(visited, 0);
 		
-		// Recursively walkthrough cells from entrance
-		walkThrough(this.maze.entrance);
+		// Walkthrough cells from entrance
+		int depth = walkThrough(maze.index(maze.entrance));
+		// the stack holds the path
+		if (stats != null)
+			stats.end(maze, step_counter, solved ? Arrays.copyOf(stack, depth) : null);
 
 	} // end of solveMaze()
 
 
+	/**
+	 * Sets the metrics to fill by each solve.
+	 *
+	 * @param stats the metrics, null to stop measuring
+	 */
+	@Override
+	public void setStats(SolveStats stats) {
+		this.stats = stats;
+	}
+
 	/**
 	 * Checks if the maze is solved.
 	 *
@@ -91,97 +142,86 @@ public class RecursiveBacktrackerSolver implements MazeSolver {
 
 	/**
 	 * Walk through.
-	 * Recursive funtion for solving maze
-	 * @param cell the cell
+	 * Depth first search from a cell, keeping the path back on an explicit
+	 * stack rather than recursing, so the size of the maze is not bounded by
+	 * the thread stack.
+	 * @param start the cell to start from
+	 * @return the number of cells on the stack at the end
 	 */
-	private void walkThrough(Cell cell) {
-
-		setCellVisited(cell);
-		// Set cell reference point to the cell it tunnels to
-		if (cell.tunnelTo != null) {
-			cell = cell.tunnelTo;
-			setCellVisited(cell);
-		}
-		// Randomly get a unvisited neighbor of cell
-		int dir = randomlyChoseNeighbor(cell);
-		Cell neigh;
-		while (dir != -1) {
-			neigh = cell.neigh[dir];
-			// Assign true to solved, if find a cell is exit of the maze
-			if(neigh.equals(this.maze.exit)) {
-				setCellVisited(this.maze.exit);
-				solved = true;
-				return;
+	private int walkThrough(int start) {
+		int exit = maze.index(maze.exit);
+		int top = 0;
+		setCellVisited(start);
+		stack[top ++] = start;
+		// Assign true to solved, if find a cell is exit of the maze
+		solved = start == exit;
+
+		while (!solved && top > 0) {
+			// Randomly get a unvisited neighbor of cell
+			int neigh = randomlyChoseNeighbor(stack[top - 1]);
+			if (neigh == -1) {
+				// Dead end, backtrack one cell
+				top --;
+				continue;
 			}
-			walkThrough(neigh);
-			// if maze solved return to caller
-			if(solved) return;
-			dir = randomlyChoseNeighbor(cell);
-
+			setCellVisited(neigh);
+			if (top == stack.length)
+				stack = Arrays.copyOf(stack, 2 * top);
+			stack[top ++] = neigh;
+			solved = neigh == exit;
+			if (stats != null)
+				stats.frontier(top);
 		}
+		return top;
 	}
 
 	/**
-	 * Randomly chose neighbor.
+	 * Randomly chose neighbor, among the cells through an open wall and the
+	 * other end of a tunnel. Each unvisited one is kept with probability 1/n
+	 * when it is the n-th one found, so every one of them is equally likely
+	 * without collecting them first.
 	 *
 	 * @param cell the cell
-	 * @return the int
+	 * @return the neighbor, -1 if there is none
 	 */
-	private int randomlyChoseNeighbor(Cell cell) {
-		List<Integer> neighsDir = new ArrayList<>();
+	private int randomlyChoseNeighbor(int cell) {
+		int neigh = -1;
+		int count = 0;
+		int end = maze.tunnel(cell);
+		if (end >= 0 && !isCellVisited(end)) {
+			neigh = end;
+			count ++;
+		}
 		for (int k = 0; k < NUM_DIR; k++) {
-			Cell c = cell.neigh[k];
-			if(c != null && !isCellVisited(c) && !cell.wall[k].present) {
-				neighsDir.add(k);
+			int c = maze.neighbour(cell, k);
+			if(c >= 0 && !isCellVisited(c) && !maze.isWallPresent(cell, k)
+					&& rand.nextInt(++ count) == 0) {
+				neigh = c;
 			}
 		}
-		int neighDir = -1;
-		if(neighsDir.size() > 0)
-			neighDir = neighsDir.get(rand.nextInt(neighsDir.size()));
 
-		return neighDir;
+		return neigh;
 	}
 
 	/**
 	 * Checks if is cell visited.
 	 *
-	 * @param cell the cell
+	 * @param cell the index of the cell
 	 * @return true, if is cell visited
 	 */
-	private boolean isCellVisited(Cell cell) {
-		boolean result;
-		int r = cell.r;
-		int c = cell.c;
-		if(maze.type == HEX) {
-			c = c - (r + 1) / 2;
-		}
-		try {
-			result = visited[r][c];
-		} catch (Exception e){
-			result = true;
-		}
-
-		return result;
+	private boolean isCellVisited(int cell) {
+		return (visited[cell >>> 6] & (1L << cell)) != 0;
 	}
 
 	/**
 	 * Sets the cell visited.
 	 *
-	 * @param cell the new cell visited
+	 * @param cell the index of the new cell visited
 	 */
-	private void setCellVisited(Cell cell) {
-		int r = cell.r;
-		int c = cell.c;
-		if(maze.type == HEX) {
-			c = c - (r + 1) / 2;
-		}
-		try {
-			visited[r][c] = true;
-			maze.drawFtPrt(cell);
-			step_counter ++;
-		} catch (Exception e){
-			e.printStackTrace();
-		}
+	private void setCellVisited(int cell) {
+		visited[cell >>> 6] |= 1L << cell;
+		maze.drawFtPrt(cell);
+		step_counter ++;
 	}
 
 } // end of class RecursiveBackTrackerSolver
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2016 Ricky Wu.
+ */
+package mazeSolver;
+
+import maze.Maze;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metrics of a solve. Give an instance to a solver with setStats() and it is
+ * filled by each solveMaze() call; a solver without one skips all of it.
+ *
+ * Times and allocations are measured on the thread calling solveMaze(), so
+ * for the parallel solvers the CPU time and the allocated bytes only cover
+ * the work done on that thread, while the wall time covers all of it.
+ */
+public class SolveStats {
+
+	/** The thread management, for the CPU time and allocations of the solving thread. */
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	/** The wall-clock time of the solve in nanoseconds. */
+	public long wallNanos;
+
+	/** The CPU time of the solving thread in nanoseconds, -1 if not supported. */
+	public long cpuNanos;
+
+	/** The bytes allocated by the solving thread, -1 if not supported. */
+	public long allocatedBytes;
+
+	/** The number of cells visited. */
+	public long cellsVisited;
+
+	/** The largest size of the frontier, queue, heap or stack of the solver. */
+	public long peakFrontier;
+
+	/** The number of steps from entrance to exit, -1 if not solved. */
+	public int pathLength;
+
+	/** The number of steps of the path through a tunnel. */
+	public int tunnelHops;
+
+	/** The time of each phase in nanoseconds, by name, in the order they first ran. */
+	private final Map<String, Long> phaseNanos = new LinkedHashMap<String, Long>();
+
+	/** The clocks at begin(). */
+	private long startWall, startCpu, startAllocated;
+
+	/**
+	 * Clear the metrics and start the clocks, called at the start of a solve.
+	 */
+	public void begin() {
+		cellsVisited = 0;
+		peakFrontier = 0;
+		pathLength = -1;
+		tunnelHops = 0;
+		phaseNanos.clear();
+		startCpu = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+		startAllocated = allocatedBytes();
+		startWall = System.nanoTime();
+	}
+
+	/**
+	 * Stop the clocks and record the result, called at the end of a solve.
+	 *
+	 * @param maze the maze solved
+	 * @param cellsVisited the number of cells visited
+	 * @param path the indices of the cells from entrance to exit, null if not solved
+	 */
+	public void end(Maze maze, long cellsVisited, int path[]) {
+		wallNanos = System.nanoTime() - startWall;
+		cpuNanos = startCpu < 0 ? -1 : threads.getCurrentThreadCpuTime() - startCpu;
+		long allocated = allocatedBytes();
+		allocatedBytes = startAllocated < 0 || allocated < 0 ? -1 : allocated - startAllocated;
+		this.cellsVisited = cellsVisited;
+		if (path != null) {
+			pathLength = path.length - 1;
+			for (int i = 1; i < path.length; i ++) {
+				if (maze.tunnel(path[i - 1]) == path[i])
+					tunnelHops ++;
+			}
+		}
+	}
+
+	/**
+	 * Add time to a phase.
+	 *
+	 * @param name the name of the phase
+	 * @param nanos the time in nanoseconds
+	 */
+	public void addPhase(String name, long nanos) {
+		phaseNanos.merge(name, nanos, Long::sum);
+	}
+
+	/**
+	 * Record a size of the frontier, keeping the largest.
+	 *
+	 * @param size the size
+	 */
+	public void frontier(long size) {
+		if (size > peakFrontier)
+			peakFrontier = size;
+	}
+
+	/**
+	 * The time of each phase.
+	 *
+	 * @return the nanoseconds by phase name, in the order the phases first ran
+	 */
+	public Map<String, Long> getPhaseNanos() {
+		return Collections.unmodifiableMap(phaseNanos);
+	}
+
+	/**
+	 * The bytes allocated so far by the current thread.
+	 *
+	 * @return the bytes, -1 if not supported
+	 */
+	private static long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled())
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("wall ").append(wallNanos / 1000).append(" us, cpu ")
+				.append(cpuNanos < 0 ? "n/a" : cpuNanos / 1000 + " us").append(", allocated ")
+				.append(allocatedBytes < 0 ? "n/a" : allocatedBytes + " bytes").append(", visited ")
+				.append(cellsVisited).append(", peak frontier ").append(peakFrontier).append(", path ")
+				.append(pathLength).append(", tunnel hops ").append(tunnelHops);
+		for (Map.Entry<String, Long> phase : phaseNanos.entrySet())
+			sb.append(", ").append(phase.getKey()).append(' ').append(phase.getValue() / 1000).append(" us");
+		return sb.toString();
+	}
+}